@@ -0,0 +1,49 @@
+package com.github.bournecui.easyretry.benchmark;
+
+import java.util.Collection;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link SuccessPathBenchmark} with the GC profiler and fails if a successful call allocates.
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar com.github.bournecui.easyretry.benchmark.AllocationCheck}
+ */
+public class AllocationCheck {
+
+    /**
+     * The normalized allocation rate is an estimate, allow the noise of the measurement itself.
+     */
+    private static final double MAX_BYTES_PER_OP = 1.0;
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                // Anchored, the calls of both the specialized plan and the generic loop, not the baseline.
+                .include(Pattern.quote(SuccessPathBenchmark.class.getName())
+                        + "\\.(call|callWithMaxWaitTime|callWithMetrics|callWithPredicate)$")
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        boolean allocated = false;
+        for (RunResult runResult : results) {
+            Result allocation = runResult.getSecondaryResults().get("gc.alloc.rate.norm");
+            String benchmark = runResult.getParams().getBenchmark();
+            System.out.printf("%s: %.3f bytes/op%n", benchmark, allocation.getScore());
+            if (allocation.getScore() > MAX_BYTES_PER_OP) {
+                allocated = true;
+            }
+        }
+        if (allocated) {
+            System.err.println("The success path allocates!");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.bournecui.easyretry.benchmark;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.bournecui.easyretry.EasyCallable;
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.EasyRetryBuilder;
+import com.github.bournecui.easyretry.budget.TokenBucketRetryBudget;
+import com.github.bournecui.easyretry.circuit.CircuitBreakerBuilder;
+
+/**
+ * Many threads share one {@link EasyRetry}, with the shared state it may hold. Every 16th call fails once.
+ * Run with {@code -t} to change the number of threads.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class ContentionBenchmark {
+
+    private static final IllegalStateException FAILURE = new IllegalStateException("not expected!");
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+
+        @Param({"PLAIN", "BUDGET", "SHARED_BUDGET", "CIRCUIT_BREAKER"})
+        public String features;
+
+        EasyRetry easyRetry;
+
+        @Setup
+        public void setup() {
+            EasyRetryBuilder builder = newBuilder().maxAttempts(2);
+            if ("BUDGET".equals(features)) {
+                builder.retryBudget(new TokenBucketRetryBudget(0.2, 100));
+            } else if ("SHARED_BUDGET".equals(features)) {
+                builder.sharedRetryBudget("benchmark", 0.2, 100);
+            } else if ("CIRCUIT_BREAKER".equals(features)) {
+                builder.circuitBreaker(CircuitBreakerBuilder.newBuilder().failureRateThreshold(0.9).build());
+            }
+            easyRetry = builder.build();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Job {
+
+        EasyCallable<Integer> callable;
+        private int calls;
+        private boolean failed;
+
+        @Setup
+        public void setup() {
+            callable = () -> {
+                if (!failed && (++calls & 15) == 0) {
+                    failed = true;
+                    throw FAILURE;
+                }
+                failed = false;
+                return calls;
+            };
+        }
+    }
+
+    /**
+     * The job called directly and called again when it fails, with no shared state.
+     */
+    @Benchmark
+    public Integer raw(Job job) {
+        try {
+            return job.callable.call();
+        } catch (IllegalStateException e) {
+            return job.callable.call();
+        }
+    }
+
+    @Benchmark
+    public Integer call(Shared shared, Job job) {
+        return shared.easyRetry.call(job.callable);
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.bournecui.easyretry.benchmark;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.bournecui.easyretry.EasyCallable;
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.EasyRetryBuilder;
+
+/**
+ * A job which fails once with an exception deep in the class hierarchy and then succeeds, to measure how the
+ * include and exclude exceptions are matched.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExceptionFilterBenchmark {
+
+    private static final RuntimeException DEEP_FAILURE = new Depth8Exception();
+
+    @Param({"NONE", "INCLUDE", "EXCLUDE", "BOTH"})
+    public String filter;
+
+    private EasyRetry easyRetry;
+    private EasyCallable<Integer> job;
+    private boolean failed;
+
+    @Setup
+    public void setup() {
+        EasyRetryBuilder builder = newBuilder().maxAttempts(2);
+        switch (filter) {
+            case "INCLUDE":
+                builder.includeExceptions(SQLExceptionLike.class, Depth0Exception.class);
+                break;
+            case "EXCLUDE":
+                builder.excludeExceptions(SQLExceptionLike.class, IllegalArgumentException.class);
+                break;
+            case "BOTH":
+                // The nearest match is the root of the hierarchy, so the whole hierarchy is walked.
+                builder.includeExceptions(Depth0Exception.class).excludeExceptions(SQLExceptionLike.class);
+                break;
+            default:
+                break;
+        }
+        easyRetry = builder.build();
+        job = () -> {
+            failed = !failed;
+            if (failed) {
+                throw DEEP_FAILURE;
+            }
+            return 0;
+        };
+    }
+
+    /**
+     * The job called directly and called again when it fails, without matching the exception.
+     */
+    @Benchmark
+    public Integer raw() {
+        try {
+            return job.call();
+        } catch (RuntimeException e) {
+            return job.call();
+        }
+    }
+
+    @Benchmark
+    public Integer call() {
+        return easyRetry.call(job);
+    }
+
+    static class SQLExceptionLike extends RuntimeException {
+    }
+
+    static class Depth0Exception extends RuntimeException {
+    }
+
+    static class Depth1Exception extends Depth0Exception {
+    }
+
+    static class Depth2Exception extends Depth1Exception {
+    }
+
+    static class Depth3Exception extends Depth2Exception {
+    }
+
+    static class Depth4Exception extends Depth3Exception {
+    }
+
+    static class Depth5Exception extends Depth4Exception {
+    }
+
+    static class Depth6Exception extends Depth5Exception {
+    }
+
+    static class Depth7Exception extends Depth6Exception {
+    }
+
+    static class Depth8Exception extends Depth7Exception {
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.bournecui.easyretry.benchmark;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.bournecui.easyretry.EasyCallable;
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.EasyRunnable;
+import com.github.bournecui.easyretry.FailureLogging;
+
+/**
+ * The plan made for a configuration with only the attempts, the exceptions and the backoff, compared to the
+ * generic loop on the same configuration. {@code mixed} runs a callable and a runnable through the same instance,
+ * as most applications do.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExecutionPlanBenchmark {
+
+    private static final IllegalStateException FAILURE = new IllegalStateException("not expected!");
+
+    @Param({"true", "false"})
+    public boolean specialized;
+
+    private EasyRetry easyRetry;
+    private EasyCallable<Integer> job;
+    private EasyCallable<Integer> failingOnceJob;
+    private EasyRunnable runnable;
+    private int value;
+    private boolean failed;
+
+    @Setup
+    public void setup() {
+        easyRetry = newBuilder()
+                .maxAttempts(3)
+                .includeExceptions(IllegalStateException.class)
+                .failureLogging(FailureLogging.OFF)
+                .specializedPlan(specialized)
+                .build();
+        value = 42;
+        job = () -> value;
+        failingOnceJob = () -> {
+            failed = !failed;
+            if (failed) {
+                throw FAILURE;
+            }
+            return value;
+        };
+        runnable = () -> value++;
+    }
+
+    @Benchmark
+    public Integer call() {
+        return easyRetry.call(job);
+    }
+
+    @Benchmark
+    public Integer callWithPredicate() {
+        return easyRetry.call(job, result -> result > 0);
+    }
+
+    @Benchmark
+    public void mixed(Blackhole blackhole) {
+        easyRetry.run(runnable);
+        blackhole.consume(easyRetry.call(job));
+    }
+
+    @Benchmark
+    public Integer callFailingOnce() {
+        return easyRetry.call(failingOnceJob);
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.bournecui.easyretry.benchmark;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import com.github.bournecui.easyretry.EasyCallable;
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.FailureLogging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+
+/**
+ * A job which fails once and then succeeds, with WARN enabled and the log written to a stream which drops it. The
+ * exception is created once, so the time is the retry loop plus logging the failure by the {@code mode}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FailureLoggingBenchmark {
+
+    private static final IllegalStateException FAILURE = new IllegalStateException("not expected!");
+
+    @Param({"FULL", "SUMMARY", "RATE_LIMITED", "OFF"})
+    public FailureLogging mode;
+
+    private EasyRetry easyRetry;
+    private EasyCallable<Integer> job;
+    private int attempt;
+    private Logger logger;
+    private OutputStreamAppender<ILoggingEvent> appender;
+
+    @Setup
+    public void setup() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n");
+        encoder.start();
+        appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+        appender.start();
+        logger = (Logger) LoggerFactory.getLogger(EasyRetry.class);
+        logger.setLevel(Level.WARN);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+
+        easyRetry = newBuilder()
+                .maxAttempts(2)
+                .failureLogging(mode)
+                .failureLogRate(10)
+                .build();
+        job = () -> {
+            if (++attempt == 1) {
+                throw FAILURE;
+            }
+            attempt = 0;
+            return attempt;
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        logger.detachAppender(appender);
+        logger.setAdditive(true);
+        logger.setLevel(null);
+        appender.stop();
+    }
+
+    @Benchmark
+    public Integer call() {
+        return easyRetry.call(job);
+    }
+}
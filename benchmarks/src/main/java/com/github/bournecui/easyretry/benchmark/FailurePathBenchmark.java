@@ -0,0 +1,83 @@
+package com.github.bournecui.easyretry.benchmark;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.bournecui.easyretry.EasyCallable;
+import com.github.bournecui.easyretry.EasyRetry;
+
+/**
+ * A job which fails {@code failures} times and then succeeds. The exception is created once, so only the cost
+ * of the retry loop is measured, not the cost of filling the stack trace.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FailurePathBenchmark {
+
+    private static final IllegalStateException FAILURE = new IllegalStateException("not expected!");
+
+    @Param({"1", "3"})
+    public int failures;
+
+    private EasyRetry easyRetry;
+    private EasyCallable<Integer> job;
+    private EasyCallable<Integer> rawJob;
+    private int attempt;
+
+    @Setup
+    public void setup() {
+        easyRetry = newBuilder()
+                .maxAttempts(failures + 1)
+                .includeExceptions(IllegalStateException.class)
+                .build();
+        job = () -> {
+            if (++attempt <= failures) {
+                throw FAILURE;
+            }
+            attempt = 0;
+            return attempt;
+        };
+        rawJob = () -> attempt;
+    }
+
+    /**
+     * The same number of calls made by hand, without any retry support.
+     */
+    @Benchmark
+    public Integer baseline() {
+        Integer result = null;
+        for (int i = 0; i <= failures; i++) {
+            try {
+                if (i < failures) {
+                    throw FAILURE;
+                }
+                result = rawJob.call();
+            } catch (IllegalStateException e) {
+                // retry
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Integer call() {
+        return easyRetry.call(job);
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.bournecui.easyretry.benchmark;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.bournecui.easyretry.EasyCallable;
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.ResultPredicate;
+
+/**
+ * A job whose result is rejected by the {@link ResultPredicate} {@code rejections} times before it is accepted.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResultPredicateBenchmark {
+
+    @Param({"0", "1", "3"})
+    public int rejections;
+
+    private EasyRetry easyRetry;
+    private EasyCallable<Integer> job;
+    private ResultPredicate<Integer> predicate;
+    private int attempt;
+
+    @Setup
+    public void setup() {
+        easyRetry = newBuilder().maxAttempts(rejections + 1).build();
+        job = () -> {
+            if (attempt > rejections) {
+                attempt = 0;
+            }
+            return attempt++;
+        };
+        predicate = result -> result == rejections;
+    }
+
+    /**
+     * The job and the predicate called directly, until the result is accepted.
+     */
+    @Benchmark
+    public Integer raw() {
+        Integer result = null;
+        for (int i = 0; i <= rejections; i++) {
+            result = job.call();
+            if (predicate.test(result)) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Integer call() {
+        return easyRetry.call(job, predicate);
+    }
+}
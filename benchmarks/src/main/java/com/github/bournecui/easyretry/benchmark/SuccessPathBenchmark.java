@@ -0,0 +1,89 @@
+package com.github.bournecui.easyretry.benchmark;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.bournecui.easyretry.EasyCallable;
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.listener.MetricsRetryListener;
+
+/**
+ * The overhead of {@link EasyRetry#call(EasyCallable)} when the first attempt succeeds, compared to calling the
+ * job directly. {@code call} runs the default configuration on its specialized plan, a max wait time or a
+ * listener runs the generic loop.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SuccessPathBenchmark {
+
+    private EasyRetry easyRetry;
+    private EasyRetry easyRetryWithMaxWaitTime;
+    private EasyRetry easyRetryWithMetrics;
+    private EasyCallable<Integer> job;
+    private int value;
+
+    @Setup
+    public void setup() {
+        easyRetry = newBuilder()
+                .maxAttempts(3)
+                .backoff(10)
+                .includeExceptions(IllegalStateException.class)
+                .build();
+        easyRetryWithMaxWaitTime = newBuilder()
+                .maxAttempts(3)
+                .maxWaitTime(1000L)
+                .backoff(10)
+                .includeExceptions(IllegalStateException.class)
+                .build();
+        easyRetryWithMetrics = newBuilder()
+                .maxAttempts(3)
+                .maxWaitTime(1000L)
+                .backoff(10)
+                .includeExceptions(IllegalStateException.class)
+                .listener(new MetricsRetryListener())
+                .build();
+        value = 42;
+        job = () -> value;
+    }
+
+    @Benchmark
+    public Integer baseline() {
+        return job.call();
+    }
+
+    @Benchmark
+    public Integer call() {
+        return easyRetry.call(job);
+    }
+
+    @Benchmark
+    public Integer callWithMaxWaitTime() {
+        return easyRetryWithMaxWaitTime.call(job);
+    }
+
+    @Benchmark
+    public Integer callWithMetrics() {
+        return easyRetryWithMetrics.call(job);
+    }
+
+    @Benchmark
+    public Integer callWithPredicate() {
+        return easyRetry.call(job, result -> result == 42);
+    }
+}
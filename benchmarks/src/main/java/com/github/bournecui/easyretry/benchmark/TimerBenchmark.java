@@ -0,0 +1,97 @@
+package com.github.bournecui.easyretry.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.bournecui.easyretry.timer.HashedWheelTimer;
+import com.github.bournecui.easyretry.timer.RetryTimer;
+import com.github.bournecui.easyretry.timer.ScheduledExecutorTimer;
+import com.github.bournecui.easyretry.timer.Timeout;
+
+/**
+ * The timers of the async backoffs with N backoffs already pending an hour ahead:
+ * <ul>
+ * <li>{@code scheduleAndCancel}: schedule a backoff and cancel it, as an attempt which succeeds early does.</li>
+ * <li>{@code scheduleAndFire}: schedule a batch of 1ms backoffs and wait for all of them to fire.</li>
+ * </ul>
+ * {@code WHEEL} is the {@link HashedWheelTimer}, {@code SCHEDULED_EXECUTOR} a single thread
+ * {@link ScheduledThreadPoolExecutor}, the timer before it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TimerBenchmark {
+
+    private static final int BATCH = 100000;
+
+    @Param({"10000", "100000", "1000000"})
+    public int pending;
+
+    @Param({"WHEEL", "SCHEDULED_EXECUTOR"})
+    public String timerType;
+
+    private RetryTimer timer;
+    private HashedWheelTimer wheelTimer;
+    private ScheduledThreadPoolExecutor scheduler;
+
+    @Setup
+    public void setup() {
+        if ("WHEEL".equals(timerType)) {
+            wheelTimer = new HashedWheelTimer();
+            timer = wheelTimer;
+        } else {
+            scheduler = new ScheduledThreadPoolExecutor(1);
+            scheduler.setRemoveOnCancelPolicy(true);
+            timer = new ScheduledExecutorTimer(scheduler);
+        }
+        for (int i = 0; i < pending; i++) {
+            timer.schedule(TimerBenchmark::noop, 3600000 + i, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (wheelTimer != null) {
+            wheelTimer.close();
+        } else {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static void noop() {
+    }
+
+    @Benchmark
+    public boolean scheduleAndCancel() {
+        Timeout timeout = timer.schedule(TimerBenchmark::noop, 60000, TimeUnit.MILLISECONDS);
+        return timeout.cancel();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void scheduleAndFire() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            timer.schedule(latch::countDown, 1, TimeUnit.MILLISECONDS);
+        }
+        latch.await();
+    }
+}
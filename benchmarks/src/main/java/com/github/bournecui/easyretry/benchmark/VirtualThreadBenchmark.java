@@ -0,0 +1,104 @@
+package com.github.bournecui.easyretry.benchmark;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.bournecui.easyretry.EasyCallable;
+import com.github.bournecui.easyretry.EasyRetry;
+
+/**
+ * Many concurrent jobs which fail once and succeed after a 10ms backoff, the time to finish all of them:
+ * <ul>
+ * <li>{@code PLATFORM_POOL}: the blocking {@code call} on a pool of 200 platform threads.</li>
+ * <li>{@code PLATFORM_PER_CALL}: the blocking {@code call} on a new platform thread for every job.</li>
+ * <li>{@code VIRTUAL}: {@code callAsync} with {@code virtualThreads}, the blocking loop on virtual threads.</li>
+ * <li>{@code ASYNC}: {@code callAsync} with the backoffs scheduled on the timer.</li>
+ * </ul>
+ * {@code VIRTUAL} needs JDK 21+, run it with {@code -p mode=PLATFORM_POOL,ASYNC} on older JDKs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadBenchmark {
+
+    private static final IllegalStateException FAILURE = new IllegalStateException("not expected!");
+
+    @Param({"1000", "10000"})
+    public int jobs;
+
+    @Param({"PLATFORM_POOL", "PLATFORM_PER_CALL", "VIRTUAL", "ASYNC"})
+    public String mode;
+
+    private EasyRetry easyRetry;
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        easyRetry = newBuilder()
+                .maxAttempts(2)
+                .backoff(10)
+                .virtualThreads("VIRTUAL".equals(mode))
+                .build();
+        if ("PLATFORM_POOL".equals(mode)) {
+            executor = Executors.newFixedThreadPool(200);
+        } else if ("PLATFORM_PER_CALL".equals(mode)) {
+            executor = Executors.newCachedThreadPool();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public int retryAll() throws Exception {
+        CompletableFuture<Integer>[] futures = new CompletableFuture[jobs];
+        for (int i = 0; i < jobs; i++) {
+            EasyCallable<Integer> callable = failOnce();
+            if (executor != null) {
+                futures[i] = CompletableFuture.supplyAsync(() -> easyRetry.call(callable), executor);
+            } else {
+                futures[i] = easyRetry.callAsync(callable);
+            }
+        }
+        int sum = 0;
+        for (CompletableFuture<Integer> future : futures) {
+            sum += future.get();
+        }
+        return sum;
+    }
+
+    private static EasyCallable<Integer> failOnce() {
+        final boolean[] failed = {false};
+        return () -> {
+            if (!failed[0]) {
+                failed[0] = true;
+                throw FAILURE;
+            }
+            return 1;
+        };
+    }
+}
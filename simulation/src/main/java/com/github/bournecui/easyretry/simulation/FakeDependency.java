@@ -0,0 +1,95 @@
+package com.github.bournecui.easyretry.simulation;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A dependency which takes its latency on the virtual clock and fails at its error rate, or at the rate of the
+ * outage the call starts in. A call longer than the timeout of the client fails when the timeout is reached.
+ */
+public class FakeDependency {
+
+    /**
+     * The failures carry no stack trace, millions of them are thrown.
+     */
+    private static final DependencyException FAILURE = new DependencyException("Call failed");
+    private static final DependencyException TIMEOUT = new DependencyException("Call timed out");
+
+    private final VirtualClock clock;
+    private final SplittableRandom random;
+    private final LatencyDistribution latency;
+    private final double errorRate;
+    private final Outage[] outages;
+    private final long timeout;
+
+    private long calls;
+    private long failures;
+
+    /**
+     * @param outages       The outages, in the order of their start and without overlap.
+     * @param timeoutMillis The timeout of the client, 0 means none.
+     */
+    public FakeDependency(VirtualClock clock, SplittableRandom random, LatencyDistribution latency, double errorRate,
+                          List<Outage> outages, long timeoutMillis) {
+        this.clock = clock;
+        this.random = random;
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.outages = outages.toArray(new Outage[0]);
+        this.timeout = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    public int call() {
+        calls++;
+        double rate = errorRateAt(clock.nanoTime());
+        long elapsed = latency.sample(random);
+        if (timeout > 0 && elapsed >= timeout) {
+            clock.advance(timeout);
+            failures++;
+            throw TIMEOUT;
+        }
+        clock.advance(elapsed);
+        if (rate > 0 && random.nextDouble() < rate) {
+            failures++;
+            throw FAILURE;
+        }
+        return 1;
+    }
+
+    /**
+     * @return How many calls are made, including the failed ones.
+     */
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    private double errorRateAt(long now) {
+        // The last outage starting at or before now.
+        int low = 0;
+        int high = outages.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (outages[mid].getStart() <= now) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (high >= 0 && now < outages[high].getEnd()) {
+            return Math.max(errorRate, outages[high].getErrorRate());
+        }
+        return errorRate;
+    }
+
+    public static class DependencyException extends RuntimeException {
+
+        public DependencyException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
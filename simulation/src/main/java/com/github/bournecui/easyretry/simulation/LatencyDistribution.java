@@ -0,0 +1,44 @@
+package com.github.bournecui.easyretry.simulation;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latency of a call of the fake dependency.
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    /**
+     * @return The latency in nanosecond, drawn from the random given so a simulation can be replayed by its seed.
+     */
+    long sample(SplittableRandom random);
+
+    static LatencyDistribution constant(long millis) {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        return random -> nanos;
+    }
+
+    static LatencyDistribution uniform(long minMillis, long maxMillis) {
+        long min = TimeUnit.MILLISECONDS.toNanos(minMillis);
+        long max = TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        return random -> min + random.nextLong(max - min + 1);
+    }
+
+    /**
+     * A log-normal latency, the usual shape of a service: most calls near the median and a long tail.
+     *
+     * @param medianMillis The median.
+     * @param sigma        The standard deviation of the log of the latency, e.g. 0.5 puts p99 at about 3 times the
+     *                     median.
+     */
+    static LatencyDistribution logNormal(double medianMillis, double sigma) {
+        double median = TimeUnit.MILLISECONDS.toNanos(1) * medianMillis;
+        return random -> {
+            // Box-Muller, SplittableRandom has no nextGaussian.
+            double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble()))
+                    * Math.cos(2 * Math.PI * random.nextDouble());
+            return (long) (median * Math.exp(sigma * gaussian));
+        };
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.bournecui.easyretry.simulation;
+
+/**
+ * A log-linear histogram of latencies in nanosecond: every power of two is split into 32 buckets, so a percentile
+ * is within about 3% whatever the number of values, in a fixed 15KB.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final long[] counts = new long[(64 - SUB_BITS + 1) * SUB_BUCKETS];
+    private long total;
+    private long max;
+
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0L);
+        counts[index(value)]++;
+        total++;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * @param percentile E.g. 99.9.
+     *
+     * @return The latency in nanosecond at the percentile, 0 if nothing is recorded.
+     */
+    public long percentile(double percentile) {
+        if (total == 0) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(total * percentile / 100));
+        long seen = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(middle(i), max);
+            }
+        }
+        return max;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    private static int index(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * @return The middle of the values of the bucket.
+     */
+    private static long middle(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) / 2;
+    }
+}
@@ -0,0 +1,59 @@
+package com.github.bournecui.easyretry.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A window of time in which the fake dependency fails at a higher rate.
+ */
+public class Outage {
+
+    /**
+     * The start and the end of the window in nanosecond since the start of the simulation.
+     */
+    private final long start;
+    private final long end;
+
+    /**
+     * The rate of calls failed in the window, 1 means it is down.
+     */
+    private final double errorRate;
+
+    /**
+     * @param startMillis    The start in millisecond since the start of the simulation.
+     * @param durationMillis How long it lasts in millisecond.
+     */
+    public Outage(long startMillis, long durationMillis, double errorRate) {
+        if (durationMillis <= 0 || errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("durationMillis must be positive and errorRate in [0, 1]!");
+        }
+        this.start = TimeUnit.MILLISECONDS.toNanos(startMillis);
+        this.end = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * @return An outage at the same time of every period, e.g. every day, over the duration.
+     */
+    public static List<Outage> every(long periodMillis, long offsetMillis, long durationMillis, double errorRate,
+                                     long totalMillis) {
+        List<Outage> outages = new ArrayList<>();
+        for (long start = offsetMillis; start < totalMillis; start += periodMillis) {
+            outages.add(new Outage(start, durationMillis, errorRate));
+        }
+        return outages;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+}
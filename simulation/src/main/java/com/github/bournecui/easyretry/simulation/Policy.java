@@ -0,0 +1,55 @@
+package com.github.bournecui.easyretry.simulation;
+
+import java.util.SplittableRandom;
+
+import com.github.bournecui.easyretry.EasyRetryBuilder;
+import com.github.bournecui.easyretry.backoff.BackoffStrategy;
+
+/**
+ * A retry configuration to simulate, by name.
+ */
+public class Policy {
+
+    private final String name;
+    private final Configurer configurer;
+
+    private Policy(String name, Configurer configurer) {
+        this.name = name;
+        this.configurer = configurer;
+    }
+
+    /**
+     * @param configurer Sets the policy on a builder which already runs on the virtual clock.
+     */
+    public static Policy of(String name, Configurer configurer) {
+        return new Policy(name, configurer);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    void configure(EasyRetryBuilder builder, VirtualClock clock, SplittableRandom random) {
+        configurer.configure(builder, clock, random);
+    }
+
+    /**
+     * Wait a random delay between 0 and {@code base * 2^(attempt - 1)}, but no more than {@code cap}, as
+     * {@link BackoffStrategy#exponentialFullJitter(long, long)} but drawn from the random of the simulation, so
+     * it can be replayed by its seed.
+     */
+    public static BackoffStrategy fullJitter(long base, long cap, SplittableRandom random) {
+        BackoffStrategy exponential = BackoffStrategy.exponential(base, cap);
+        return (attempt, previousDelay) -> random.nextLong(exponential.delay(attempt, previousDelay) + 1);
+    }
+
+    @FunctionalInterface
+    public interface Configurer {
+
+        /**
+         * @param clock  The virtual clock, for the parts which take a clock of their own, e.g. the circuit breaker.
+         * @param random The random of the simulation, for the parts which draw random numbers.
+         */
+        void configure(EasyRetryBuilder builder, VirtualClock clock, SplittableRandom random);
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.bournecui.easyretry.simulation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of a policy in a scenario.
+ */
+public class Report {
+
+    private final String policy;
+    private final long requests;
+    private final long successes;
+    private final long calls;
+    private final long duration;
+    private final LatencyHistogram latencies;
+
+    /**
+     * @param calls    How many calls reached the dependency, the first attempts and the retries.
+     * @param duration The simulated time in nanosecond.
+     */
+    Report(String policy, long requests, long successes, long calls, long duration, LatencyHistogram latencies) {
+        this.policy = policy;
+        this.requests = requests;
+        this.successes = successes;
+        this.calls = calls;
+        this.duration = duration;
+        this.latencies = latencies;
+    }
+
+    public static String header() {
+        return String.format("%-44s %10s %9s %9s %10s %9s %9s %9s %9s", "policy", "requests", "success",
+                "goodput/s", "amplify", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms");
+    }
+
+    public String getPolicy() {
+        return policy;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getSuccesses() {
+        return successes;
+    }
+
+    /**
+     * @return The requests succeeded per second of simulated time.
+     */
+    public double getGoodput() {
+        return successes / (duration / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    public double getSuccessRatio() {
+        return requests == 0 ? 0 : successes / (double) requests;
+    }
+
+    /**
+     * @return The calls which reached the dependency per request, 1 means no retry at all.
+     */
+    public double getAmplification() {
+        return requests == 0 ? 0 : calls / (double) requests;
+    }
+
+    /**
+     * @return The latency of the requests at the percentile, including the retries and the backoffs, in
+     * millisecond.
+     */
+    public double getLatency(double percentile) {
+        return latencies.percentile(percentile) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-44s %10d %8.4f%% %9.3f %10.3f %9.1f %9.1f %9.1f %9.1f", policy, requests,
+                getSuccessRatio() * 100, getGoodput(), getAmplification(), getLatency(50), getLatency(90),
+                getLatency(99), getLatency(99.9));
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.bournecui.easyretry.simulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * The traffic and the dependency of a simulation. Every policy is run on the same scenario from the same seed, so
+ * they see the same arrivals, latencies and outages.
+ */
+public class Scenario {
+
+    /**
+     * How long the traffic lasts, in millisecond of simulated time, default is one day.
+     */
+    private long duration = 24 * 3600 * 1000L;
+
+    /**
+     * The requests per second, they arrive at random as a Poisson process, default value is 10.
+     */
+    private double requestRate = 10;
+
+    private long seed = 42L;
+
+    private LatencyDistribution latency = LatencyDistribution.logNormal(20, 0.5);
+
+    /**
+     * The rate of calls failed out of the outages, default value is 0.01.
+     */
+    private double errorRate = 0.01;
+
+    private final List<Outage> outages = new ArrayList<>();
+
+    /**
+     * The timeout of a call of the dependency, in millisecond, default value is 0 which means none.
+     */
+    private long timeout;
+
+    public Scenario duration(long duration) {
+        this.duration = duration;
+        return this;
+    }
+
+    public Scenario requestRate(double requestRate) {
+        this.requestRate = requestRate;
+        return this;
+    }
+
+    public Scenario seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public Scenario latency(LatencyDistribution latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    public Scenario errorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    public Scenario outages(List<Outage> outages) {
+        this.outages.addAll(outages);
+        this.outages.sort(Comparator.comparingLong(Outage::getStart));
+        return this;
+    }
+
+    public Scenario timeout(long timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public double getRequestRate() {
+        return requestRate;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public List<Outage> getOutages() {
+        return Collections.unmodifiableList(outages);
+    }
+
+    FakeDependency newDependency(VirtualClock clock, SplittableRandom random) {
+        return new FakeDependency(clock, random, latency, errorRate, outages, timeout);
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.bournecui.easyretry.simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.github.bournecui.easyretry.budget.TokenBucketRetryBudget;
+import com.github.bournecui.easyretry.circuit.CircuitBreakerBuilder;
+
+/**
+ * Compares a few retry policies on a week of traffic against a dependency with a 1% error rate, which is down for 15
+ * minutes and fails half of the calls for 30 more minutes every day.
+ * <p>
+ * Usage: {@code java -jar target/simulation.jar [days] [requests per second] [seed]}
+ */
+public final class Simulation {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    private Simulation() {
+    }
+
+    public static void main(String[] args) {
+        long days = args.length > 0 ? Long.parseLong(args[0]) : 7L;
+        double requestRate = args.length > 1 ? Double.parseDouble(args[1]) : 10;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+
+        long duration = days * DAY;
+        List<Outage> outages = new ArrayList<>(Outage.every(DAY, 2 * HOUR, 15 * MINUTE, 1.0, duration));
+        outages.addAll(Outage.every(DAY, 14 * HOUR, 30 * MINUTE, 0.5, duration));
+        Scenario scenario = new Scenario()
+                .duration(duration)
+                .requestRate(requestRate)
+                .seed(seed)
+                .latency(LatencyDistribution.logNormal(20, 0.5))
+                .errorRate(0.01)
+                .timeout(200L)
+                .outages(outages);
+
+        List<Policy> policies = Arrays.asList(
+                Policy.of("no retry", (builder, clock, random) -> builder.maxAttempts(1)),
+                Policy.of("3 attempts, fixed 100ms", (builder, clock, random) -> builder
+                        .maxAttempts(3)
+                        .backoff(100)),
+                Policy.of("5 attempts, full jitter", (builder, clock, random) -> builder
+                        .maxAttempts(5)
+                        .backoff(Policy.fullJitter(50, 2000, random))),
+                Policy.of("5 attempts, full jitter, 10% budget", (builder, clock, random) -> builder
+                        .maxAttempts(5)
+                        .backoff(Policy.fullJitter(50, 2000, random))
+                        .retryBudget(new TokenBucketRetryBudget(0.1, 100))),
+                Policy.of("5 attempts, full jitter, circuit breaker", (builder, clock, random) -> builder
+                        .maxAttempts(5)
+                        .backoff(Policy.fullJitter(50, 2000, random))
+                        .circuitBreaker(CircuitBreakerBuilder.newBuilder()
+                                .failureRateThreshold(0.5)
+                                .openDuration(10000L)
+                                .clock(clock)
+                                .build())));
+
+        System.out.printf("%d days at %.1f requests per second, seed %d%n%n", days, requestRate, seed);
+        System.out.println(Report.header());
+        for (Policy policy : policies) {
+            long start = System.nanoTime();
+            Report report = Simulator.run(scenario, policy);
+            System.out.printf("%s   (%d ms)%n", report, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.bournecui.easyretry.simulation;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.github.bournecui.easyretry.EasyCallable;
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.EasyRetryBuilder;
+import com.github.bournecui.easyretry.FailureLogging;
+
+/**
+ * Runs the requests of a scenario through a policy on the virtual clock, on the calling thread.
+ * <p>
+ * The requests are run one by one: each one starts on the clock at its arrival and runs to its end, retries and
+ * backoffs included, before the next one arrives. So the time of the requests which overlap is interleaved only
+ * across requests, the state they share, e.g. the circuit breaker or the retry budget, sees their attempts in the
+ * order of the requests, and the dependency has no notion of load. In return, a simulation is replayed exactly by
+ * its seed and costs no real time but the retry loop.
+ */
+public final class Simulator {
+
+    private Simulator() {
+    }
+
+    public static Report run(Scenario scenario, Policy policy) {
+        SplittableRandom random = new SplittableRandom(scenario.getSeed());
+        SplittableRandom arrivals = random.split();
+        VirtualClock clock = new VirtualClock();
+        FakeDependency dependency = scenario.newDependency(clock, random.split());
+
+        EasyRetryBuilder builder = newBuilder()
+                .clock(clock)
+                .sleeper(clock)
+                .failureLogging(FailureLogging.OFF);
+        policy.configure(builder, clock, random.split());
+        EasyRetry easyRetry = builder.build();
+        EasyCallable<Integer> job = dependency::call;
+
+        long end = TimeUnit.MILLISECONDS.toNanos(scenario.getDuration());
+        double meanGap = TimeUnit.SECONDS.toNanos(1) / scenario.getRequestRate();
+        LatencyHistogram latencies = new LatencyHistogram();
+        long requests = 0L;
+        long successes = 0L;
+        long arrival = nextGap(arrivals, meanGap);
+        while (arrival < end) {
+            clock.set(arrival);
+            requests++;
+            try {
+                easyRetry.call(job);
+                successes++;
+            } catch (RuntimeException e) {
+                // The request failed, counted as not succeeded.
+            }
+            latencies.record(clock.nanoTime() - arrival);
+            arrival += nextGap(arrivals, meanGap);
+        }
+        return new Report(policy.getName(), requests, successes, dependency.getCalls(), end, latencies);
+    }
+
+    /**
+     * @return The time to the next arrival of a Poisson process, in nanosecond.
+     */
+    private static long nextGap(SplittableRandom random, double meanGap) {
+        return Math.max(1L, (long) (-Math.log(1 - random.nextDouble()) * meanGap));
+    }
+}
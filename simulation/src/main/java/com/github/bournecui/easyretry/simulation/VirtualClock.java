@@ -0,0 +1,36 @@
+package com.github.bournecui.easyretry.simulation;
+
+import java.util.concurrent.TimeUnit;
+
+import com.github.bournecui.easyretry.clock.Clock;
+import com.github.bournecui.easyretry.clock.Sleeper;
+
+/**
+ * Simulated time, it only moves when a backoff is slept or the fake dependency takes its latency, so a sleep costs
+ * nothing. Not thread safe, a simulation runs on one thread.
+ */
+public class VirtualClock implements Clock, Sleeper {
+
+    private long now;
+
+    @Override
+    public long nanoTime() {
+        return now;
+    }
+
+    @Override
+    public void sleep(long millis) {
+        advance(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    public void advance(long nanos) {
+        now += nanos;
+    }
+
+    /**
+     * Move to the time given, e.g. the arrival of the next request. It may go back in time, see {@link Simulator}.
+     */
+    public void set(long nanos) {
+        now = nanos;
+    }
+}
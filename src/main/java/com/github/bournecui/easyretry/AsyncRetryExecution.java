@@ -0,0 +1,324 @@
+package com.github.bournecui.easyretry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.github.bournecui.easyretry.bulkhead.BulkheadFullException;
+import com.github.bournecui.easyretry.circuit.CircuitBreakerOpenException;
+import com.github.bournecui.easyretry.clock.Clock;
+import com.github.bournecui.easyretry.listener.RetryListener;
+import com.github.bournecui.easyretry.timer.Timeout;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One in-flight asynchronous retry. Every attempt runs on the async executor of the {@link EasyRetry},
+ * backoffs are scheduled on its timer so no thread is blocked between attempts. An attempt with a timeout runs on
+ * the attempt executor and is timed out by the timer, so no thread is blocked waiting for it either.
+ * <p>
+ * An attempt is always handed over through an executor, so the fields are never touched by two threads at
+ * the same time.
+ */
+@Slf4j
+final class AsyncRetryExecution<T> implements Runnable {
+
+    private final EasyRetry easyRetry;
+    private final EasyJob easyJob;
+    private final ResultPredicate<T> resultPredicate;
+    private final CompletableFuture<T> future;
+    private final long deadline;
+    private final int maxAttempts;
+
+    private int attempt;
+    private long delay;
+    private long strategyDelay;
+    /**
+     * The {@link Clock#nanoTime()} the attempt started at, only read with a listener.
+     */
+    private long attemptStart;
+    /**
+     * The outcome of the previous attempt, given back if the next one gets no permit of the bulkhead.
+     */
+    private T lastResult;
+    private Throwable lastFailure;
+    /**
+     * The failures retried, attached to the exception finally thrown unless they are logged in full.
+     */
+    private List<Throwable> failures;
+
+    AsyncRetryExecution(EasyRetry easyRetry, EasyJob easyJob, ResultPredicate<T> resultPredicate) {
+        this.easyRetry = easyRetry;
+        this.easyJob = easyJob;
+        this.resultPredicate = resultPredicate;
+        this.future = new CompletableFuture<>();
+        this.deadline = easyRetry.deadline();
+        this.maxAttempts = easyRetry.attemptsLimit();
+    }
+
+    CompletableFuture<T> start() {
+        try {
+            easyRetry.checkCircuitBreaker();
+            // Never wait in the queue of the bulkhead, the caller must not be blocked.
+            easyRetry.acquirePermit(1, false);
+        } catch (CircuitBreakerOpenException | BulkheadFullException e) {
+            future.completeExceptionally(e);
+            return future;
+        } catch (InterruptedException e) {
+            // Never happens without waiting.
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return future;
+        }
+        if (easyRetry.getRetryBudget() != null) {
+            easyRetry.getRetryBudget().deposit();
+        }
+        submit();
+        return future;
+    }
+
+    @Override
+    public void run() {
+        if (future.isDone()) {
+            // Cancelled by the caller.
+            if (attempt == 0) {
+                easyRetry.releasePermit();
+            }
+            return;
+        }
+
+        RetryListener listener = easyRetry.getListener();
+        attempt++;
+        // A retry runs on the async executor, it does not wait for a permit there.
+        if (attempt > 1 && !acquirePermit()) {
+            if (listener != null) {
+                listener.onExhausted(attempt - 1, lastFailure);
+            }
+            if (lastFailure != null) {
+                future.completeExceptionally(FailureLogger.attach(lastFailure, failures));
+            } else {
+                future.complete(lastResult);
+            }
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("attempt:{}", attempt);
+        }
+        if (listener != null) {
+            listener.onAttemptStart(attempt);
+            attemptStart = easyRetry.getClock().nanoTime();
+        }
+
+        long timeout = easyRetry.attemptTimeout(deadline);
+        RetryContext context = easyRetry.attemptContext(easyJob, attempt, maxAttempts, lastFailure, timeout);
+        if (easyRetry.getAttemptTimeout() > 0) {
+            runWithTimeout(context, timeout);
+            return;
+        }
+        T result = null;
+        Throwable failure = null;
+        try {
+            result = (T) easyRetry.doExecute(easyJob, context);
+        } catch (Throwable e) {
+            failure = e;
+        }
+        finish(result, failure);
+    }
+
+    /**
+     * Run the attempt on the attempt executor, and fail it by the timer when it takes too long. No thread waits for
+     * the attempt, its outcome is handed over to the async executor.
+     */
+    private void runWithTimeout(RetryContext context, long timeout) {
+        CompletableFuture<Object> outcome = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = easyRetry.getAttemptExecutor().submit(() -> {
+                try {
+                    outcome.complete(easyRetry.doExecute(easyJob, context));
+                } catch (Throwable e) {
+                    outcome.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            finish(null, e);
+            return;
+        }
+
+        Timeout timer = null;
+        try {
+            timer = easyRetry.getTimer().schedule(() -> {
+                if (outcome.completeExceptionally(easyRetry.attemptTimedOut(timeout))) {
+                    task.cancel(true);
+                }
+            }, timeout, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            if (outcome.completeExceptionally(e)) {
+                task.cancel(true);
+            }
+        }
+        Timeout scheduled = timer;
+        outcome.whenComplete((result, failure) -> {
+            if (scheduled != null) {
+                scheduled.cancel();
+            }
+            Runnable finish = () -> finish((T) result, failure);
+            try {
+                easyRetry.getAsyncExecutor().execute(finish);
+            } catch (RejectedExecutionException e) {
+                finish.run();
+            }
+        });
+    }
+
+    /**
+     * Decide what follows the attempt, it gives back the permit of the bulkhead.
+     *
+     * @param failure The exception thrown by the attempt, null if it returned the result.
+     */
+    private void finish(T result, Throwable failure) {
+        RetryListener listener = easyRetry.getListener();
+        Clock clock = easyRetry.getClock();
+        try {
+            if (failure == null) {
+                try {
+                    if (easyJob instanceof EasyRunnable || resultPredicate == null || resultPredicate.test(result)) {
+                        if (log.isDebugEnabled()) {
+                            log.debug("Job finished after {}/{} attempts.", attempt, maxAttempts);
+                        }
+                        easyRetry.recordOutcome(true);
+                        if (listener != null) {
+                            listener.onSuccess(attempt, result, clock.nanoTime() - attemptStart);
+                        }
+                        future.complete(result);
+                        return;
+                    }
+                } catch (Throwable e) {
+                    failure = e;
+                }
+            }
+
+            if (failure == null) {
+                log.debug("ResultPredicate return false, retry will be continued! ");
+                easyRetry.recordOutcome(false);
+                if (listener != null) {
+                    listener.onResultRejected(attempt, result, clock.nanoTime() - attemptStart);
+                }
+            } else {
+                if (failure instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                    future.completeExceptionally(failure);
+                    return;
+                }
+                easyRetry.recordOutcome(false);
+                if (listener != null) {
+                    listener.onAttemptFailure(attempt, failure, clock.nanoTime() - attemptStart);
+                }
+
+                FailureLogger failureLogger = easyRetry.getFailureLogger();
+                if (attempt >= maxAttempts || !easyRetry.retryOnException(failure)) {
+                    FailureLogger.attach(failure, failures);
+                    failureLogger.attemptFailed(log, true, attempt, easyRetry.getMaxAttempts(), failure);
+                    if (listener != null) {
+                        listener.onExhausted(attempt, failure);
+                    }
+                    future.completeExceptionally(failure);
+                    return;
+                }
+                failureLogger.attemptFailed(log, false, attempt, easyRetry.getMaxAttempts(), failure);
+                if (failureLogger.attachesFailures()) {
+                    if (failures == null) {
+                        failures = new ArrayList<>(maxAttempts - 1);
+                    }
+                    failures.add(failure);
+                }
+                result = null;
+            }
+        } finally {
+            easyRetry.releasePermit();
+        }
+
+        if (easyRetry.pastDeadline(deadline, 0L)) {
+            timeout(listener);
+            return;
+        }
+
+        if (attempt >= maxAttempts) {
+            // Only an unexpected result gets here, it is returned the same as the synchronous way.
+            if (listener != null) {
+                listener.onExhausted(attempt, null);
+            }
+            future.complete(result);
+            return;
+        }
+
+        strategyDelay = easyRetry.strategyDelay(attempt, strategyDelay);
+        delay = easyRetry.nextBackoff(strategyDelay, easyRetry.retryAfter(failure, failure == null ? result : null));
+        if (easyRetry.pastDeadline(deadline, delay)) {
+            // The next attempt could only start after the max wait time.
+            timeout(listener);
+            return;
+        }
+        if (!easyRetry.acquireRetry(attempt)) {
+            if (listener != null) {
+                listener.onExhausted(attempt, failure);
+            }
+            if (failure != null) {
+                future.completeExceptionally(FailureLogger.attach(failure, failures));
+            } else {
+                future.complete(result);
+            }
+            return;
+        }
+
+        lastResult = result;
+        lastFailure = failure;
+        if (delay > 0) {
+            if (log.isDebugEnabled()) {
+                log.debug("Schedule, backoff:{}", delay);
+            }
+            try {
+                easyRetry.getTimer().schedule(this::submit, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                easyRetry.releaseCircuitBreaker();
+                future.completeExceptionally(e);
+            }
+        } else {
+            submit();
+        }
+    }
+
+    private void timeout(RetryListener listener) {
+        if (listener != null) {
+            listener.onTimeout(attempt);
+        }
+        future.completeExceptionally(
+                FailureLogger.attach(new TimeoutException(easyRetry.timeoutMessage(attempt)), failures));
+    }
+
+    private boolean acquirePermit() {
+        try {
+            return easyRetry.acquirePermit(attempt, false);
+        } catch (InterruptedException e) {
+            // Never happens without waiting.
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void submit() {
+        try {
+            easyRetry.getAsyncExecutor().execute(this);
+        } catch (RejectedExecutionException e) {
+            if (attempt == 0) {
+                easyRetry.releasePermit();
+            }
+            // The attempt never starts, neither the first one nor a retry.
+            easyRetry.releaseCircuitBreaker();
+            future.completeExceptionally(e);
+        }
+    }
+}
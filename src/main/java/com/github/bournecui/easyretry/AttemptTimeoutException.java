@@ -0,0 +1,14 @@
+package com.github.bournecui.easyretry;
+
+/**
+ * Thrown when an attempt does not finish within the attempt timeout. The attempt is cancelled and it is always
+ * retried, whatever the included and excluded exceptions are.
+ */
+public class AttemptTimeoutException extends TimeoutException {
+    public AttemptTimeoutException() {
+    }
+
+    public AttemptTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,250 @@
+package com.github.bournecui.easyretry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.bournecui.easyretry.batch.BatchResult;
+import com.github.bournecui.easyretry.batch.EasyBatchCallable;
+import com.github.bournecui.easyretry.batch.MissingResultException;
+import com.github.bournecui.easyretry.listener.RetryListener;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One batch call. The keys failed in a round are regrouped into follow-up batches of at most
+ * {@code retryBatchSize} keys, every key has its own attempt count, so only the failed keys are sent again.
+ * <p>
+ * A key is given up when it reaches the max attempts, or its exception is not retried, or the retry budget, the
+ * circuit breaker or the bulkhead does not allow the follow-up batch. The keys left when the max wait time is
+ * reached fail with {@link TimeoutException}. Every batch call takes a permit of the bulkhead.
+ * <p>
+ * To the listener and the circuit breaker, every batch call is an attempt of the round, which succeeds only if
+ * all its keys are accepted. The call is exhausted if any key is given up.
+ */
+@Slf4j
+final class BatchExecution<K, V> {
+
+    private final EasyRetry easyRetry;
+    private final EasyBatchCallable<K, V> batchCallable;
+    private final ResultPredicate<V> resultPredicate;
+    private final RetryListener listener;
+
+    private final BatchResult<K, V> outcome = new BatchResult<>();
+    /**
+     * The keys to retry and the attempts made for each of them, in the order of the keys given.
+     */
+    private final Map<K, Integer> pending = new LinkedHashMap<>();
+    /**
+     * The exception of the last key given up, null if none or only rejected results.
+     */
+    private Throwable lastFailure;
+    private boolean givenUp;
+
+    BatchExecution(EasyRetry easyRetry, EasyBatchCallable<K, V> batchCallable, ResultPredicate<V> resultPredicate) {
+        this.easyRetry = easyRetry;
+        this.batchCallable = batchCallable;
+        this.resultPredicate = resultPredicate;
+        this.listener = easyRetry.getListener();
+    }
+
+    BatchResult<K, V> call(Collection<K> keys) throws InterruptedException {
+        int maxAttempts = easyRetry.attemptsLimit();
+        long deadline = easyRetry.deadline();
+        for (K key : keys) {
+            pending.put(key, 0);
+        }
+        if (pending.isEmpty()) {
+            return outcome;
+        }
+
+        easyRetry.checkCircuitBreaker();
+        easyRetry.acquirePermit(1, true);
+        if (easyRetry.getRetryBudget() != null) {
+            easyRetry.getRetryBudget().deposit();
+        }
+
+        // The first round sends all the keys in one batch, as the caller does.
+        List<List<K>> batches = new ArrayList<>();
+        batches.add(new ArrayList<>(pending.keySet()));
+        int round = 0;
+        long delay = 0L;
+        long strategyDelay = 0L;
+        while (true) {
+            round++;
+            if (log.isDebugEnabled()) {
+                log.debug("Batch round:{}, keys:{}", round, pending.size());
+            }
+            for (List<K> batch : batches) {
+                if (round > 1 && !(easyRetry.acquireRetry(round - 1) && easyRetry.acquirePermit(round, true))) {
+                    // The keys left keep the outcome of their last attempt.
+                    for (K key : pending.keySet()) {
+                        giveUp(key);
+                    }
+                    pending.clear();
+                    return finish(round - 1);
+                }
+                try {
+                    attempt(batch, round, maxAttempts);
+                } finally {
+                    easyRetry.releasePermit();
+                }
+            }
+
+            if (pending.isEmpty()) {
+                return finish(round);
+            }
+
+            strategyDelay = easyRetry.strategyDelay(round, strategyDelay);
+            delay = easyRetry.nextBackoff(strategyDelay, retryAfter());
+            if (easyRetry.pastDeadline(deadline, delay)) {
+                // The next round could only start after the max wait time.
+                TimeoutException timeout = new TimeoutException(easyRetry.timeoutMessage(round));
+                for (K key : pending.keySet()) {
+                    outcome.fail(key, timeout);
+                }
+                pending.clear();
+                if (listener != null) {
+                    listener.onTimeout(round);
+                }
+                return outcome;
+            }
+            if (delay > 0) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Sleep, backoff:{}", delay);
+                }
+                easyRetry.getSleeper().sleep(delay);
+            }
+            batches = regroup();
+        }
+    }
+
+    private BatchResult<K, V> finish(int rounds) {
+        if (givenUp && listener != null) {
+            listener.onExhausted(rounds, lastFailure);
+        }
+        return outcome;
+    }
+
+    private void giveUp(K key) {
+        givenUp = true;
+        Throwable failure = outcome.getFailed().get(key);
+        if (failure != null) {
+            lastFailure = failure;
+        }
+    }
+
+    /**
+     * Call one batch and sort its keys out. A batch which returns null fails all its keys with
+     * {@link MissingResultException}.
+     */
+    private void attempt(List<K> batch, int round, int maxAttempts) {
+        long start = 0L;
+        if (listener != null) {
+            listener.onAttemptStart(round);
+            start = easyRetry.getClock().nanoTime();
+        }
+        BatchResult<K, V> result;
+        Throwable batchFailure = null;
+        try {
+            result = batchCallable.call(batch);
+        } catch (Throwable e) {
+            easyRetry.getFailureLogger().batchFailed(log, batch.size(), e);
+            result = null;
+            batchFailure = e;
+        }
+
+        boolean allAccepted = true;
+        Throwable firstFailure = batchFailure;
+        for (K key : batch) {
+            int attempts = pending.get(key) + 1;
+            Throwable failure = batchFailure;
+            boolean retryable;
+            if (failure == null && result != null && result.isSucceeded(key)) {
+                V value = result.getSucceeded().get(key);
+                try {
+                    if (resultPredicate == null || resultPredicate.test(value)) {
+                        outcome.succeed(key, value);
+                        pending.remove(key);
+                        continue;
+                    }
+                } catch (Throwable e) {
+                    failure = e;
+                }
+                if (failure == null) {
+                    // Rejected, keep the value in case it is the last attempt.
+                    outcome.reject(key, value);
+                    retryable = true;
+                } else {
+                    outcome.fail(key, failure);
+                    retryable = easyRetry.retryOnException(failure);
+                }
+            } else {
+                if (failure == null && result != null) {
+                    failure = result.getFailed().get(key);
+                }
+                if (failure == null) {
+                    failure = new MissingResultException("No result for key " + key);
+                    retryable = true;
+                } else {
+                    retryable = easyRetry.retryOnException(failure);
+                }
+                outcome.fail(key, failure);
+            }
+
+            allAccepted = false;
+            if (firstFailure == null) {
+                firstFailure = outcome.getFailed().get(key);
+            }
+            if (!retryable || attempts >= maxAttempts) {
+                giveUp(key);
+                pending.remove(key);
+            } else {
+                pending.put(key, attempts);
+            }
+        }
+        easyRetry.recordOutcome(allAccepted);
+        if (listener != null) {
+            long elapsed = easyRetry.getClock().nanoTime() - start;
+            if (allAccepted) {
+                listener.onSuccess(round, result, elapsed);
+            } else if (firstFailure != null) {
+                listener.onAttemptFailure(round, firstFailure, elapsed);
+            } else {
+                listener.onResultRejected(round, result, elapsed);
+            }
+        }
+    }
+
+    /**
+     * @return The longest delay hinted by the last outcomes of the keys left, negative if none.
+     */
+    private long retryAfter() {
+        if (easyRetry.getRetryAfterExtractor() == null) {
+            return -1L;
+        }
+        long hint = -1L;
+        for (K key : pending.keySet()) {
+            Throwable failure = outcome.getFailed().get(key);
+            Object rejected = failure == null ? outcome.getRejected().get(key) : null;
+            hint = Math.max(hint, easyRetry.retryAfter(failure, rejected));
+        }
+        return hint;
+    }
+
+    private List<List<K>> regroup() {
+        int size = easyRetry.getRetryBatchSize() > 0 ? easyRetry.getRetryBatchSize() : pending.size();
+        List<List<K>> batches = new ArrayList<>();
+        List<K> batch = null;
+        for (K key : pending.keySet()) {
+            if (batch == null || batch.size() >= size) {
+                batch = new ArrayList<>(Math.min(size, pending.size()));
+                batches.add(batch);
+            }
+            batch.add(key);
+        }
+        return batches;
+    }
+}
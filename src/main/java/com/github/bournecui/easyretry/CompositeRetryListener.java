@@ -0,0 +1,92 @@
+package com.github.bournecui.easyretry;
+
+import java.util.List;
+
+import com.github.bournecui.easyretry.listener.RetryListener;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Dispatches to the listeners in order, it wraps every listener registered. An exception thrown by a listener is
+ * logged and swallowed, so it neither reaches the other listeners nor the retry loop, where it would fail an
+ * attempt which succeeded or leak the permit of the bulkhead.
+ */
+@Slf4j
+final class CompositeRetryListener implements RetryListener {
+
+    private final RetryListener[] listeners;
+
+    CompositeRetryListener(List<RetryListener> listeners) {
+        this.listeners = listeners.toArray(new RetryListener[0]);
+    }
+
+    @Override
+    public void onAttemptStart(int attempt) {
+        for (RetryListener listener : listeners) {
+            try {
+                listener.onAttemptStart(attempt);
+            } catch (RuntimeException e) {
+                failed(listener, "onAttemptStart", e);
+            }
+        }
+    }
+
+    @Override
+    public void onAttemptFailure(int attempt, Throwable throwable, long elapsedNanos) {
+        for (RetryListener listener : listeners) {
+            try {
+                listener.onAttemptFailure(attempt, throwable, elapsedNanos);
+            } catch (RuntimeException e) {
+                failed(listener, "onAttemptFailure", e);
+            }
+        }
+    }
+
+    @Override
+    public void onResultRejected(int attempt, Object result, long elapsedNanos) {
+        for (RetryListener listener : listeners) {
+            try {
+                listener.onResultRejected(attempt, result, elapsedNanos);
+            } catch (RuntimeException e) {
+                failed(listener, "onResultRejected", e);
+            }
+        }
+    }
+
+    @Override
+    public void onSuccess(int attempt, Object result, long elapsedNanos) {
+        for (RetryListener listener : listeners) {
+            try {
+                listener.onSuccess(attempt, result, elapsedNanos);
+            } catch (RuntimeException e) {
+                failed(listener, "onSuccess", e);
+            }
+        }
+    }
+
+    @Override
+    public void onExhausted(int attempts, Throwable lastFailure) {
+        for (RetryListener listener : listeners) {
+            try {
+                listener.onExhausted(attempts, lastFailure);
+            } catch (RuntimeException e) {
+                failed(listener, "onExhausted", e);
+            }
+        }
+    }
+
+    @Override
+    public void onTimeout(int attempts) {
+        for (RetryListener listener : listeners) {
+            try {
+                listener.onTimeout(attempts);
+            } catch (RuntimeException e) {
+                failed(listener, "onTimeout", e);
+            }
+        }
+    }
+
+    private static void failed(RetryListener listener, String method, RuntimeException e) {
+        log.warn("Listener {} failed in {}, ignored.", listener, method, e);
+    }
+}
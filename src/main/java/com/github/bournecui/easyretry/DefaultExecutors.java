@@ -0,0 +1,81 @@
+package com.github.bournecui.easyretry;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.bournecui.easyretry.timer.HashedWheelTimer;
+import com.github.bournecui.easyretry.timer.RetryTimer;
+
+/**
+ * The executors shared by all {@link EasyRetry} instances which are not given their own ones. They are created
+ * on first use, with daemon threads.
+ */
+final class DefaultExecutors {
+
+    private DefaultExecutors() {
+    }
+
+    /**
+     * The timer of the backoffs of async jobs, a timing wheel of 1 millisecond ticks. It only fires backoffs, the
+     * attempts themselves are handed over to the async executor.
+     */
+    static RetryTimer timer() {
+        return TimerHolder.INSTANCE;
+    }
+
+    /**
+     * Runs the attempts which have a timeout. A hung attempt occupies its thread until it returns, so the threads
+     * are not bounded, idle ones are released after a minute.
+     */
+    static ExecutorService attemptExecutor() {
+        return AttemptExecutorHolder.INSTANCE;
+    }
+
+    /**
+     * Starts a new virtual thread for every task. Virtual threads come with JDK 21, so the executor is looked up
+     * reflectively and the jar still runs on Java 8.
+     *
+     * @return The executor, null if the running JDK has no virtual thread.
+     */
+    static ExecutorService virtualThreadExecutor() {
+        return VirtualThreadExecutorHolder.INSTANCE;
+    }
+
+    static ThreadFactory daemonThreadFactory(final String prefix) {
+        final AtomicInteger index = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class TimerHolder {
+        private static final RetryTimer INSTANCE =
+                new HashedWheelTimer(1, TimeUnit.MILLISECONDS, daemonThreadFactory("easy-retry-timer-"));
+    }
+
+    private static final class AttemptExecutorHolder {
+        private static final ExecutorService INSTANCE = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+                60L, TimeUnit.SECONDS, new SynchronousQueue<>(), daemonThreadFactory("easy-retry-attempt-"));
+    }
+
+    private static final class VirtualThreadExecutorHolder {
+        private static final ExecutorService INSTANCE = create();
+
+        private static ExecutorService create() {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+    }
+}
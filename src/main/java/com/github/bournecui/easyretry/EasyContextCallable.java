@@ -0,0 +1,9 @@
+package com.github.bournecui.easyretry;
+
+/**
+ * A job which is told about the retry it runs in, e.g. to size the timeout of its own RPC to the time left.
+ */
+@FunctionalInterface
+public interface EasyContextCallable<T> extends EasyJob {
+    T call(RetryContext context);
+}
@@ -1,9 +1,39 @@
 package com.github.bournecui.easyretry;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-
-import com.github.bournecui.easyretry.util.CollectionUtils;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.github.bournecui.easyretry.adaptive.AdaptiveRetryPolicy;
+import com.github.bournecui.easyretry.backoff.BackoffStrategy;
+import com.github.bournecui.easyretry.backoff.RetryAfterExtractor;
+import com.github.bournecui.easyretry.batch.BatchResult;
+import com.github.bournecui.easyretry.batch.EasyBatchCallable;
+import com.github.bournecui.easyretry.budget.RetryBudget;
+import com.github.bournecui.easyretry.bulkhead.Bulkhead;
+import com.github.bournecui.easyretry.bulkhead.BulkheadFullException;
+import com.github.bournecui.easyretry.circuit.CircuitBreaker;
+import com.github.bournecui.easyretry.circuit.CircuitBreakerOpenException;
+import com.github.bournecui.easyretry.clock.Clock;
+import com.github.bournecui.easyretry.clock.Sleeper;
+import com.github.bournecui.easyretry.durable.DurableJobHandler;
+import com.github.bournecui.easyretry.durable.DurableRetryQueue;
+import com.github.bournecui.easyretry.durable.DurableRunnable;
+import com.github.bournecui.easyretry.fallback.FallbackCache;
+import com.github.bournecui.easyretry.listener.RetryListener;
+import com.github.bournecui.easyretry.stream.StreamSource;
+import com.github.bournecui.easyretry.timer.RetryTimer;
+
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -16,40 +46,430 @@ public class EasyRetry {
 
     private List<Class<? extends Throwable>> includeExceptions;
     private List<Class<? extends Throwable>> excludeExceptions;
-
-    private Integer maxAttempts;
-    private Long maxWaitTime;
-    private Long backoff;
+    @Getter(AccessLevel.NONE)
+    private ExceptionClassifier exceptionClassifier;
+
+    private int maxAttempts;
+    private long maxWaitTime;
+    private long backoff;
+    private BackoffStrategy backoffStrategy;
+    private RetryAfterExtractor retryAfterExtractor;
+    private long minRetryAfter;
+    private long maxRetryAfter;
+    private RetryBudget retryBudget;
+    private CircuitBreaker circuitBreaker;
+    private RetryListener listener;
+    private FailureLogging failureLogging;
+    @Getter(AccessLevel.PACKAGE)
+    private FailureLogger failureLogger;
+    private AdaptiveRetryPolicy adaptivePolicy;
+    private Bulkhead bulkhead;
+
+    private long attemptTimeout;
+    private ExecutorService attemptExecutor;
+
+    @Getter(AccessLevel.PACKAGE)
+    private HedgeDelay hedgeDelay;
+    private int maxHedges;
+
+    private RetryTimer timer;
+    private Clock clock;
+    private Sleeper sleeper;
+    private Executor asyncExecutor;
+    private ExecutorService virtualThreadExecutor;
+
+    private int retryBatchSize;
+
+    private DurableRetryQueue durableQueue;
+
+    private FallbackCache fallbackCache;
+
+    /**
+     * The loop of the blocking calls and runs, chosen by the builder.
+     */
+    @Getter(AccessLevel.NONE)
+    private ExecutionPlan plan;
+
+    @Getter(AccessLevel.NONE)
+    private final SingleFlight singleFlight = new SingleFlight(this);
+    /**
+     * The background refreshes of the fallback cache in flight, apart from the shared calls.
+     */
+    @Getter(AccessLevel.NONE)
+    private final SingleFlight refreshes = new SingleFlight(this);
 
     protected EasyRetry() {
 
     }
 
     public void run(EasyRunnable easyRunnable) {
-        executeUninterruptable(easyRunnable, null);
+        try {
+            plan.run(easyRunnable);
+        } catch (InterruptedException e) {
+            log.warn("Ingore InterruptedException");
+        }
     }
 
     public <T> T call(EasyCallable<T> easyCallable) {
-        return (T) executeUninterruptable(easyCallable, null);
+        return call(easyCallable, null);
     }
 
     public <T> T call(EasyCallable<T> easyCallable, ResultPredicate<T> resultPredicate) {
+        try {
+            return plan.call(easyCallable, resultPredicate);
+        } catch (InterruptedException e) {
+            log.warn("Ingore InterruptedException");
+        }
+        return null;
+    }
+
+    /**
+     * Call the job with the {@link RetryContext} of every attempt, e.g. to fit its own timeouts into the time left.
+     */
+    public <T> T call(EasyContextCallable<T> easyCallable) {
+        return (T) executeUninterruptable(easyCallable, null);
+    }
+
+    public <T> T call(EasyContextCallable<T> easyCallable, ResultPredicate<T> resultPredicate) {
         return (T) executeUninterruptable(easyCallable, resultPredicate);
     }
 
     public void runInterruptable(EasyRunnable easyRunnable) throws InterruptedException {
-        execute(easyRunnable, null);
+        plan.run(easyRunnable);
     }
 
     public <T> T callInterruptable(EasyCallable<T> easyCallable) throws InterruptedException {
-        return (T) execute(easyCallable, null);
+        return plan.call(easyCallable, null);
     }
 
     public <T> T callInterruptable(EasyCallable<T> easyCallable, ResultPredicate<T> resultPredicate)
             throws InterruptedException {
+        return plan.call(easyCallable, resultPredicate);
+    }
+
+    public <T> T callInterruptable(EasyContextCallable<T> easyCallable) throws InterruptedException {
+        return (T) execute(easyCallable, null);
+    }
+
+    public <T> T callInterruptable(EasyContextCallable<T> easyCallable, ResultPredicate<T> resultPredicate)
+            throws InterruptedException {
         return (T) execute(easyCallable, resultPredicate);
     }
 
+    /**
+     * Run the job asynchronously, the backoffs are scheduled on a timer instead of blocking a thread.
+     * With {@code virtualThreads} the job runs on a virtual thread of its own and sleeps there instead.
+     *
+     * @param easyRunnable The job.
+     *
+     * @return The future completed when the job finished or retry is given up.
+     */
+    public CompletableFuture<Void> runAsync(EasyRunnable easyRunnable) {
+        if (virtualThreadExecutor != null) {
+            return executeOnVirtualThread(easyRunnable, null);
+        }
+        return new AsyncRetryExecution<Void>(this, easyRunnable, null).start();
+    }
+
+    /**
+     * Call the job asynchronously, the backoffs are scheduled on a timer instead of blocking a thread.
+     * With {@code virtualThreads} the job runs on a virtual thread of its own and sleeps there instead.
+     *
+     * @param easyCallable The job.
+     *
+     * @return The future completed with the result, or with the exception which stopped the retry.
+     */
+    public <T> CompletableFuture<T> callAsync(EasyCallable<T> easyCallable) {
+        return callAsync(easyCallable, null);
+    }
+
+    public <T> CompletableFuture<T> callAsync(EasyCallable<T> easyCallable, ResultPredicate<T> resultPredicate) {
+        if (virtualThreadExecutor != null) {
+            return executeOnVirtualThread(easyCallable, resultPredicate);
+        }
+        return new AsyncRetryExecution<>(this, easyCallable, resultPredicate).start();
+    }
+
+    public <T> CompletableFuture<T> callAsync(EasyContextCallable<T> easyCallable) {
+        return callAsync(easyCallable, null);
+    }
+
+    public <T> CompletableFuture<T> callAsync(EasyContextCallable<T> easyCallable,
+                                              ResultPredicate<T> resultPredicate) {
+        if (virtualThreadExecutor != null) {
+            return executeOnVirtualThread(easyCallable, resultPredicate);
+        }
+        return new AsyncRetryExecution<>(this, easyCallable, resultPredicate).start();
+    }
+
+    /**
+     * Run the whole blocking retry loop on a virtual thread of its own, the backoff sleeps park the virtual thread
+     * and release its carrier.
+     */
+    private <T> CompletableFuture<T> executeOnVirtualThread(EasyJob easyJob, ResultPredicate<T> resultPredicate) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            virtualThreadExecutor.execute(() -> {
+                try {
+                    future.complete((T) execute(easyJob, resultPredicate));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Call the job in single flight mode: while a call of the key is running, the calls of the same key wait for
+     * its result or exception instead of running their own retry, so a burst of callers of a hot key sends one
+     * retried call to the dependency. All the calls of a key must run the same job. A caller interrupted while it
+     * waits gets the {@link InterruptedException}, with its interrupt status restored.
+     *
+     * @param key          The key, by {@code equals} and {@code hashCode}.
+     * @param easyCallable The job.
+     *
+     * @return The result of the call in flight.
+     */
+    public <T> T callShared(Object key, EasyCallable<T> easyCallable) {
+        return callShared(key, easyCallable, null);
+    }
+
+    public <T> T callShared(Object key, EasyCallable<T> easyCallable, ResultPredicate<T> resultPredicate) {
+        return singleFlight.call(key, () -> call(easyCallable, resultPredicate));
+    }
+
+    /**
+     * Call the job asynchronously in single flight mode, see {@link #callShared(Object, EasyCallable)}. Every
+     * caller gets a future of its own.
+     */
+    public <T> CompletableFuture<T> callSharedAsync(Object key, EasyCallable<T> easyCallable) {
+        return callSharedAsync(key, easyCallable, null);
+    }
+
+    public <T> CompletableFuture<T> callSharedAsync(Object key, EasyCallable<T> easyCallable,
+                                                    ResultPredicate<T> resultPredicate) {
+        return singleFlight.callAsync(key, () -> callAsync(easyCallable, resultPredicate));
+    }
+
+    /**
+     * @return How many keys have a shared call in flight.
+     */
+    public int getSharedCallsInFlight() {
+        return singleFlight.size();
+    }
+
+    /**
+     * Call the job and save the result accepted into the fallback cache under the key. When the job runs out of
+     * attempts, times out, or the circuit breaker or the bulkhead rejects it, the value saved is returned instead if
+     * it is not too stale. An exception which is not retried is thrown as is.
+     * <p>
+     * With {@code refreshInBackground} a value saved is returned at once, and the job is called asynchronously to
+     * refresh it, one refresh in flight per key.
+     *
+     * @param key          The key, by {@code equals} and {@code hashCode}.
+     * @param easyCallable The job.
+     *
+     * @return The result, or the value saved if the job failed.
+     */
+    public <T> T callWithFallback(Object key, EasyCallable<T> easyCallable) {
+        return callWithFallback(key, easyCallable, null);
+    }
+
+    public <T> T callWithFallback(Object key, EasyCallable<T> easyCallable, ResultPredicate<T> resultPredicate) {
+        FallbackCache cache = requireFallbackCache();
+        if (cache.isRefreshInBackground()) {
+            T saved = cache.get(key);
+            if (saved != null) {
+                refreshes.callAsync(key, () -> refresh(cache, key, easyCallable, resultPredicate));
+                return saved;
+            }
+        }
+
+        boolean[] accepted = new boolean[1];
+        T result;
+        try {
+            result = plan.call(easyCallable, acceptance(resultPredicate, accepted));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback(cache, key, new EasyRetryException("Interrupted while calling the job of " + key, e));
+        } catch (Throwable e) {
+            if (!(e instanceof EasyRetryException) && !retryOnException(e)) {
+                throw EasyRetry.<RuntimeException>sneakyThrow(e);
+            }
+            return fallback(cache, key, e);
+        }
+        if (accepted[0]) {
+            cache.put(key, result);
+            return result;
+        }
+        // Retry is given up with a result rejected, a value saved is better.
+        T saved = cache.get(key);
+        return saved != null ? saved : result;
+    }
+
+    private FallbackCache requireFallbackCache() {
+        if (fallbackCache == null) {
+            throw new IllegalStateException("Fallback is not enabled, set fallbackCache!");
+        }
+        return fallbackCache;
+    }
+
+    private <T> CompletableFuture<T> refresh(FallbackCache cache, Object key, EasyCallable<T> easyCallable,
+                                             ResultPredicate<T> resultPredicate) {
+        boolean[] accepted = new boolean[1];
+        return callAsync(easyCallable, acceptance(resultPredicate, accepted)).whenComplete((result, e) -> {
+            if (e == null && accepted[0]) {
+                cache.put(key, result);
+            }
+        });
+    }
+
+    /**
+     * @param accepted Set to whether the last result tested is accepted.
+     *
+     * @return The predicate which records its own outcome, to tell a result accepted from the last one rejected.
+     */
+    private static <T> ResultPredicate<T> acceptance(ResultPredicate<T> resultPredicate, boolean[] accepted) {
+        return result -> accepted[0] = resultPredicate == null || resultPredicate.test(result);
+    }
+
+    private <T> T fallback(FallbackCache cache, Object key, Throwable failure) {
+        T saved = cache.get(key);
+        if (saved == null) {
+            throw EasyRetry.<RuntimeException>sneakyThrow(failure);
+        }
+        if (log.isWarnEnabled()) {
+            log.warn("The job of {} failed, the value saved is returned: {}", key, failure.toString());
+        }
+        return saved;
+    }
+
+    /**
+     * Call the job with hedging: if an attempt is slower than the hedge delay another one is launched along with
+     * it, the first result accepted wins and the others are cancelled. Only use it for idempotent jobs.
+     *
+     * @param easyCallable The job.
+     *
+     * @return The result.
+     */
+    public <T> T callHedged(EasyCallable<T> easyCallable) throws InterruptedException {
+        return callHedged(easyCallable, null);
+    }
+
+    public <T> T callHedged(EasyCallable<T> easyCallable, ResultPredicate<T> resultPredicate)
+            throws InterruptedException {
+        if (hedgeDelay == null) {
+            throw new IllegalStateException("Hedging is not enabled, set hedgeDelay or hedgeDelayPercentile!");
+        }
+        return new HedgedExecution<>(this, easyCallable, resultPredicate).call();
+    }
+
+    /**
+     * Call a bulk job, only the keys failed are retried. Every key has its own attempts, the keys failed in a round
+     * are sent again in batches of at most {@code retryBatchSize} keys.
+     *
+     * @param keys          The keys.
+     * @param batchCallable The bulk job.
+     *
+     * @return The outcome of every key, a key given up keeps its last exception, or its last value
+     * rejected by the {@code ResultPredicate}.
+     */
+    public <K, V> BatchResult<K, V> callBatch(Collection<K> keys, EasyBatchCallable<K, V> batchCallable)
+            throws InterruptedException {
+        return callBatch(keys, batchCallable, null);
+    }
+
+    public <K, V> BatchResult<K, V> callBatch(Collection<K> keys, EasyBatchCallable<K, V> batchCallable,
+                                              ResultPredicate<V> resultPredicate) throws InterruptedException {
+        return new BatchExecution<>(this, batchCallable, resultPredicate).call(keys);
+    }
+
+    /**
+     * Consume a stream element by element, a failure reopens it right after the last element consumed instead of
+     * from the start. The max attempts count the failures in a row at the same position, the max wait time is
+     * counted from the first failure at it, and the attempt timeout does not apply.
+     *
+     * @param source     Opens the stream after a position.
+     * @param positionOf The position of an element, to reopen the stream after it.
+     * @param consumer   Consumes an element, the element it fails on is consumed again.
+     *
+     * @return The position of the last element consumed, null if none.
+     */
+    public <T, P> P runStream(StreamSource<T, P> source, Function<? super T, ? extends P> positionOf,
+                              Consumer<? super T> consumer) throws InterruptedException {
+        return runStream(null, source, positionOf, consumer);
+    }
+
+    /**
+     * @param start The position to start after, e.g. a checkpoint saved by an earlier run, null for the start.
+     *
+     * @see #runStream(StreamSource, Function, Consumer)
+     */
+    public <T, P> P runStream(P start, StreamSource<T, P> source, Function<? super T, ? extends P> positionOf,
+                              Consumer<? super T> consumer) throws InterruptedException {
+        return new StreamExecution<>(this, source, positionOf, consumer).run(start);
+    }
+
+    /**
+     * Run the job registered under the key in the durable queue. If it runs out of attempts it is saved into the
+     * queue, to be replayed later in the background.
+     *
+     * @param jobKey  The key the handler of the job is registered under.
+     * @param payload The input of the job.
+     *
+     * @return True if the job succeeded, false if it was saved for replay.
+     */
+    public boolean runDurable(String jobKey, byte[] payload) {
+        DurableJobHandler handler = requireDurableQueue().getHandler(jobKey);
+        if (handler == null) {
+            throw new IllegalStateException("No handler is registered for " + jobKey);
+        }
+        return executeDurable((EasyRunnable) () -> handler.handle(payload),
+                () -> durableQueue.enqueue(jobKey, payload));
+    }
+
+    /**
+     * Run the job, if it runs out of attempts it is serialized into the durable queue, to be replayed later in the
+     * background.
+     *
+     * @return True if the job succeeded, false if it was saved for replay.
+     */
+    public boolean runDurable(DurableRunnable durableRunnable) {
+        requireDurableQueue();
+        return executeDurable(durableRunnable, () -> durableQueue.enqueue(durableRunnable));
+    }
+
+    private DurableRetryQueue requireDurableQueue() {
+        if (durableQueue == null) {
+            throw new IllegalStateException("Durable retry is not enabled, set durableQueue!");
+        }
+        return durableQueue;
+    }
+
+    /**
+     * Only the job which may succeed later is saved, the exceptions not retried are thrown as is.
+     */
+    private boolean executeDurable(EasyRunnable easyRunnable, Runnable enqueue) {
+        try {
+            plan.run(easyRunnable);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            if (!(e instanceof EasyRetryException) && !retryOnException(e)) {
+                throw EasyRetry.<RuntimeException>sneakyThrow(e);
+            }
+            if (log.isWarnEnabled()) {
+                log.warn("The job runs out of attempts, save it for replay.", e);
+            }
+        }
+        enqueue.run();
+        return false;
+    }
+
     private Object executeUninterruptable(EasyJob easyJob, ResultPredicate resultPredicate) {
         try {
             return execute(easyJob, resultPredicate);
@@ -59,34 +479,72 @@ public class EasyRetry {
         return null;
     }
 
-    private Object execute(EasyJob easyJob, ResultPredicate resultPredicate)
+    /**
+     * The retry loop. When the first attempt succeeds nothing is allocated here and nothing is logged unless
+     * DEBUG is enabled, so wrapping a cheap job costs little more than calling it directly.
+     * The listener is read once, without a listener no clock is read for it. The max wait time is tracked on the
+     * {@link Clock}, {@link System#nanoTime()} by default, so a jump of the wall clock does not cut or stretch it,
+     * and an attempt which could only start after it is never started. The backoffs are waited out by the
+     * {@link Sleeper}. It runs every feature, the builder picks a smaller {@link ExecutionPlan} for the calls
+     * which need fewer.
+     */
+    Object execute(EasyJob easyJob, ResultPredicate resultPredicate)
             throws InterruptedException {
-        long start = System.currentTimeMillis();
+        RetryListener listener = this.listener;
+        int maxAttempts = attemptsLimit();
+        long deadline = deadline();
         Object result = null;
+        Throwable lastFailure = null;
+        List<Throwable> failures = null;
         int attempt = 0;
+        long delay = 0L;
+        long strategyDelay = 0L;
+        checkCircuitBreaker();
+        acquirePermit(1, true);
+        if (retryBudget != null) {
+            retryBudget.deposit();
+        }
         while (++attempt <= maxAttempts) {
-            log.debug("attempt:{}", attempt);
+            if (log.isDebugEnabled()) {
+                log.debug("attempt:{}", attempt);
+            }
+            long attemptStart = 0L;
+            if (listener != null) {
+                listener.onAttemptStart(attempt);
+                attemptStart = clock.nanoTime();
+            }
+            Throwable failure = null;
             try {
-                result = doExecute(easyJob);
+                result = executeAttempt(easyJob, attempt, maxAttempts, lastFailure, deadline);
                 /*
                  *  For the result, under these two circumstances retry will not be continued.
                  *      1. There's any ResultPredicate set, thus you didn't care the result.
                  *      2. The ResultPredicate.test() methond return false.
                  */
 
-                if (easyJob instanceof EasyRunnable || resultPredicate == null) {
-                    log.debug("Job finished after {}/{} attempts.", attempt, maxAttempts);
-                    return result;
-                }
-
-                if (resultPredicate.test(result)) {
-                    log.debug("Job finished after {}/{} attempts.", attempt, maxAttempts);
+                if (easyJob instanceof EasyRunnable || resultPredicate == null || resultPredicate.test(result)) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Job finished after {}/{} attempts.", attempt, maxAttempts);
+                    }
+                    recordOutcome(true);
+                    if (listener != null) {
+                        listener.onSuccess(attempt, result, clock.nanoTime() - attemptStart);
+                    }
                     return result;
                 }
 
                 log.debug("ResultPredicate return false, retry will be continued! ");
+                recordOutcome(false);
+                if (listener != null) {
+                    listener.onResultRejected(attempt, result, clock.nanoTime() - attemptStart);
+                }
+            } catch (InterruptedException e) {
+                throw e;
             } catch (Throwable e) {
-                String message = String.format("Exception occurs during the %d/%d attempt.", attempt, maxAttempts);
+                recordOutcome(false);
+                if (listener != null) {
+                    listener.onAttemptFailure(attempt, e, clock.nanoTime() - attemptStart);
+                }
 
                 /*
                  *  Under these two circumstances the exception will be thrown:
@@ -94,83 +552,326 @@ public class EasyRetry {
                  *      2. The exception is set to ignore.
                  */
                 if (attempt == maxAttempts || !retryOnException(e)) {
-                    log.error(message, e);
+                    FailureLogger.attach(e, failures);
+                    failureLogger.attemptFailed(log, true, attempt, this.maxAttempts, e);
+                    if (listener != null) {
+                        listener.onExhausted(attempt, e);
+                    }
                     throw e;
                 }
-                log.warn(message, e);
+                failureLogger.attemptFailed(log, false, attempt, this.maxAttempts, e);
+                if (failureLogger.attachesFailures()) {
+                    if (failures == null) {
+                        failures = new ArrayList<>(maxAttempts - 1);
+                    }
+                    failures.add(e);
+                }
+                failure = e;
+            } finally {
+                releasePermit();
             }
 
-            long end = System.currentTimeMillis();
-
-            if (maxWaitTime != null && maxWaitTime > 0 && (end - start) >= maxWaitTime) {
-                throw new TimeoutException(
-                        String.format("It has reach the max wait time after %d/%d attemps, retry will not"
-                                + " be continued!", attempt, maxAttempts));
+            if (pastDeadline(deadline, 0L)) {
+                if (listener != null) {
+                    listener.onTimeout(attempt);
+                }
+                throw FailureLogger.attach(new TimeoutException(timeoutMessage(attempt)), failures);
             }
 
-            if (backoff != null && backoff > 0) {
-                log.debug("Sleep, backoff:{}", backoff);
-                Thread.sleep(this.backoff);
+            lastFailure = failure;
+            if (attempt < maxAttempts) {
+                strategyDelay = strategyDelay(attempt, strategyDelay);
+                delay = nextBackoff(strategyDelay, retryAfter(failure, failure == null ? result : null));
+                if (pastDeadline(deadline, delay)) {
+                    // The next attempt could only start after the max wait time.
+                    if (listener != null) {
+                        listener.onTimeout(attempt);
+                    }
+                    throw FailureLogger.attach(new TimeoutException(timeoutMessage(attempt)), failures);
+                }
+                boolean retry = acquireRetry(attempt);
+                if (retry) {
+                    sleepBackoff(delay);
+                    retry = acquirePermit(attempt + 1, true);
+                }
+                if (!retry) {
+                    if (listener != null) {
+                        listener.onExhausted(attempt, failure);
+                    }
+                    if (failure != null) {
+                        throw EasyRetry.<RuntimeException>sneakyThrow(FailureLogger.attach(failure, failures));
+                    }
+                    return result;
+                }
             }
         }
+        if (listener != null) {
+            listener.onExhausted(maxAttempts, null);
+        }
         return result;
     }
 
-    private Object doExecute(EasyJob easyJob) {
-        if (easyJob instanceof EasyCallable) {
-            return ((EasyCallable) easyJob).call();
-        } else if (easyJob instanceof EasyRunnable) {
-            ((EasyRunnable) easyJob).run();
+    String timeoutMessage(int attempt) {
+        return String.format("It has reach the max wait time after %d/%d attemps, retry will not be continued!",
+                attempt, maxAttempts);
+    }
+
+    /**
+     * @return If the retry is allowed by both the retry budget and the circuit breaker.
+     */
+    boolean acquireRetry(int attempt) {
+        if (retryBudget != null && !retryBudget.tryWithdraw()) {
+            log.warn("Retry budget is used up after {}/{} attempts, retry will not be continued!", attempt,
+                    maxAttempts);
+            return false;
         }
-        return null;
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            log.warn("Circuit breaker is open after {}/{} attempts, retry will not be continued!", attempt,
+                    maxAttempts);
+            return false;
+        }
+        return true;
     }
 
-    private boolean retryOnException(Throwable e) {
+    /**
+     * Sleep the backoff of a retry allowed by {@link #acquireRetry(int)}, the permission of the circuit breaker is
+     * given back if the sleep is interrupted.
+     */
+    void sleepBackoff(long delay) throws InterruptedException {
+        if (delay <= 0) {
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Sleep, backoff:{}", delay);
+        }
+        boolean slept = false;
+        try {
+            sleeper.sleep(delay);
+            slept = true;
+        } finally {
+            if (!slept) {
+                releaseCircuitBreaker();
+            }
+        }
+    }
+
+    /**
+     * Give back the permission of the circuit breaker taken for an attempt which never starts.
+     */
+    void releaseCircuitBreaker() {
+        if (circuitBreaker != null) {
+            circuitBreaker.release();
+        }
+    }
 
-        boolean includeFilter = CollectionUtils.isNotEmpty(includeExceptions);
-        boolean excludeFilter = CollectionUtils.isNotEmpty(excludeExceptions);
+    /**
+     * Fail fast before the first attempt if the circuit breaker is open.
+     */
+    void checkCircuitBreaker() {
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            throw new CircuitBreakerOpenException("Circuit breaker is open, the job is not attempted!");
+        }
+    }
 
-        if (!includeFilter && !excludeFilter) {
+    /**
+     * Take a permit of the bulkhead for an attempt, it must be released when the attempt finishes. The circuit
+     * breaker is asked first, its permission is given back if the bulkhead does not let the attempt start.
+     *
+     * @param attempt The attempt about to start, the first one is rejected with a {@link BulkheadFullException}.
+     * @param wait    If the attempt may wait in the queue of the bulkhead.
+     *
+     * @return If the retry is allowed.
+     */
+    boolean acquirePermit(int attempt, boolean wait) throws InterruptedException {
+        boolean acquired = false;
+        try {
+            acquired = bulkhead == null || (wait ? bulkhead.acquire() : bulkhead.tryAcquire());
+        } finally {
+            if (!acquired) {
+                releaseCircuitBreaker();
+            }
+        }
+        if (acquired) {
             return true;
         }
+        if (attempt == 1) {
+            throw new BulkheadFullException("Bulkhead is full, the job is not attempted!");
+        }
+        log.warn("Bulkhead is full after {}/{} attempts, retry will not be continued!", attempt - 1, maxAttempts);
+        return false;
+    }
 
-        if (includeFilter && !excludeFilter) {
-            for (Class<? extends Throwable> includeException : includeExceptions) {
-                if (includeException.isInstance(e)) {
-                    log.debug("Parent exception {} is included, retry on exception {}", includeException, e.getClass());
-                    return true;
-                }
-            }
-            return false;
+    void releasePermit() {
+        if (bulkhead != null) {
+            bulkhead.release();
         }
+    }
 
-        if (!includeFilter && excludeFilter) {
-            for (Class<? extends Throwable> excludeException : excludeExceptions) {
-                if (excludeException.isInstance(e)) {
-                    log.debug("Parent exception {} is excluded, not retry on exception {}", excludeException,
-                            e.getClass());
-                    return false;
-                }
+    void recordOutcome(boolean success) {
+        if (circuitBreaker != null) {
+            if (success) {
+                circuitBreaker.onSuccess();
+            } else {
+                circuitBreaker.onFailure();
             }
-            return true;
         }
+    }
 
-        return retryOnException(e.getClass());
+    /**
+     * Rethrow the exception caught from the job as is, the job is not allowed to throw checked exceptions
+     * except by tricks, so they are not declared either.
+     */
+    static <E extends Throwable> E sneakyThrow(Throwable e) throws E {
+        throw (E) e;
     }
 
-    private boolean retryOnException(Class<? extends Throwable> eClass) {
-        if (excludeExceptions.contains(eClass)) {// 被排除了
-            log.debug("{} is excluded, not retry.", eClass);
-            return false;
-        } else if (includeExceptions.contains(eClass)) { // 被包含了
-            log.debug("{} is included, retry.", eClass);
-            return true;
-        } else if (eClass.equals(Throwable.class)) { // 即没有被排除也没有被包含
-            log.debug("Exception not included, not retry.");
-            return false;
-        } else {
-            return retryOnException((Class<? extends Throwable>) eClass.getSuperclass());
+    /**
+     * @param previousDelay The delay the strategy gave for the previous attempt, 0 for the first one.
+     *
+     * @return The delay in millisecond given by the backoff strategy alone. It is what the strategy gets back as
+     * the previous delay, whatever was actually waited, so a stretch or a hint does not skew its next delays.
+     */
+    long strategyDelay(int attempt, long previousDelay) {
+        return backoffStrategy == null ? 0L : backoffStrategy.delay(attempt, previousDelay);
+    }
+
+    /**
+     * @param strategyDelay See {@link #strategyDelay(int, long)}.
+     * @param hint          The delay hinted by the dependency, negative if none.
+     *
+     * @return The delay in millisecond before the next attempt, the hint clamped to the bounds if there's one,
+     * otherwise the delay of the strategy stretched by the adaptive policy.
+     */
+    long nextBackoff(long strategyDelay, long hint) {
+        if (hint < 0) {
+            return adaptivePolicy == null ? strategyDelay : adaptivePolicy.backoff(strategyDelay);
+        }
+        long delay = Math.max(hint, minRetryAfter);
+        if (maxRetryAfter > 0) {
+            delay = Math.min(delay, maxRetryAfter);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Retry after {} hinted, backoff:{}", hint, delay);
+        }
+        return delay;
+    }
+
+    /**
+     * @param failure The exception thrown by the attempt, null if the result is rejected.
+     * @param result  The result rejected.
+     *
+     * @return The delay hinted by the failure or the result, negative if none or no extractor is set.
+     */
+    long retryAfter(Throwable failure, Object result) {
+        if (retryAfterExtractor == null) {
+            return -1L;
+        }
+        try {
+            return retryAfterExtractor.retryAfter(failure, result);
+        } catch (RuntimeException e) {
+            log.warn("Failed to extract the retry delay, the backoff is used.", e);
+            return -1L;
+        }
+    }
+
+    /**
+     * @return The max attempts of a job about to start, shrunk by the adaptive policy if there's one.
+     */
+    int attemptsLimit() {
+        return adaptivePolicy == null ? maxAttempts : adaptivePolicy.maxAttempts(maxAttempts);
+    }
+
+    /**
+     * @return The {@link Clock#nanoTime()} of the max wait time of a job starting now, only meaningful if there's
+     * a max wait time.
+     */
+    long deadline() {
+        return maxWaitTime > 0 ? clock.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitTime) : 0L;
+    }
+
+    /**
+     * @return If an attempt after the delay in millisecond would start at or after the deadline, always false
+     * without a max wait time.
+     */
+    boolean pastDeadline(long deadline, long delay) {
+        return maxWaitTime > 0 && deadline - clock.nanoTime() <= TimeUnit.MILLISECONDS.toNanos(delay);
+    }
+
+    /**
+     * Run an attempt of the job, on the attempt executor if there's an attempt timeout.
+     *
+     * @param lastFailure The exception thrown by the previous attempt, for the {@link RetryContext}.
+     * @param deadline    The deadline of the job, see {@link #deadline()}.
+     */
+    Object executeAttempt(EasyJob easyJob, int attempt, int maxAttempts, Throwable lastFailure, long deadline)
+            throws InterruptedException {
+        long timeout = attemptTimeout(deadline);
+        RetryContext context = attemptContext(easyJob, attempt, maxAttempts, lastFailure, timeout);
+        if (attemptTimeout <= 0) {
+            return doExecute(easyJob, context);
+        }
+
+        Future<Object> future = attemptExecutor.submit(() -> doExecute(easyJob, context));
+        try {
+            return future.get(timeout, TimeUnit.NANOSECONDS);
+        } catch (java.util.concurrent.TimeoutException e) {
+            future.cancel(true);
+            throw attemptTimedOut(timeout);
+        } catch (ExecutionException e) {
+            throw EasyRetry.<RuntimeException>sneakyThrow(e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        }
+    }
+
+    /**
+     * @param deadline The deadline of the job, see {@link #deadline()}.
+     *
+     * @return How long an attempt starting now may take in nanosecond, by the attempt timeout and the max wait
+     * time, {@link Long#MAX_VALUE} if neither is set.
+     */
+    long attemptTimeout(long deadline) {
+        long timeout = attemptTimeout > 0 ? TimeUnit.MILLISECONDS.toNanos(attemptTimeout) : Long.MAX_VALUE;
+        if (maxWaitTime > 0) {
+            // No need to wait after the max wait time, retry will not be continued anyway.
+            timeout = Math.min(timeout, Math.max(deadline - clock.nanoTime(), 0L));
+        }
+        return timeout;
+    }
+
+    /**
+     * @param timeout See {@link #attemptTimeout(long)}.
+     *
+     * @return The context of the attempt, null unless the job is an {@link EasyContextCallable}.
+     */
+    RetryContext attemptContext(EasyJob easyJob, int attempt, int maxAttempts, Throwable lastFailure, long timeout) {
+        if (!(easyJob instanceof EasyContextCallable)) {
+            return null;
         }
+        boolean hasDeadline = timeout != Long.MAX_VALUE;
+        return new RetryContext(attempt, maxAttempts, lastFailure, hasDeadline ? clock.nanoTime() + timeout : 0L,
+                hasDeadline, clock);
+    }
+
+    AttemptTimeoutException attemptTimedOut(long timeout) {
+        return new AttemptTimeoutException(String.format("The attempt did not finish in %d ms.",
+                TimeUnit.NANOSECONDS.toMillis(timeout)));
+    }
+
+    Object doExecute(EasyJob easyJob, RetryContext context) {
+        if (easyJob instanceof EasyCallable) {
+            return ((EasyCallable) easyJob).call();
+        } else if (easyJob instanceof EasyContextCallable) {
+            return ((EasyContextCallable) easyJob).call(context);
+        } else if (easyJob instanceof EasyRunnable) {
+            ((EasyRunnable) easyJob).run();
+        }
+        return null;
+    }
+
+    boolean retryOnException(Throwable e) {
+        return e instanceof AttemptTimeoutException || exceptionClassifier.retryOn(e);
     }
 
     protected void setIncludeExceptions(List<Class<? extends Throwable>> includeExceptions) {
@@ -181,15 +882,115 @@ public class EasyRetry {
         this.excludeExceptions = excludeExceptions;
     }
 
-    protected void setMaxAttempts(Integer maxAttempts) {
+    void setExceptionClassifier(ExceptionClassifier exceptionClassifier) {
+        this.exceptionClassifier = exceptionClassifier;
+    }
+
+    protected void setMaxAttempts(int maxAttempts) {
         this.maxAttempts = maxAttempts;
     }
 
-    protected void setMaxWaitTime(Long maxWaitTime) {
+    protected void setMaxWaitTime(long maxWaitTime) {
         this.maxWaitTime = maxWaitTime;
     }
 
-    protected void setBackoff(Long backoff) {
+    protected void setBackoff(long backoff) {
         this.backoff = backoff;
     }
+
+    protected void setBackoffStrategy(BackoffStrategy backoffStrategy) {
+        this.backoffStrategy = backoffStrategy;
+    }
+
+    protected void setRetryAfterExtractor(RetryAfterExtractor retryAfterExtractor) {
+        this.retryAfterExtractor = retryAfterExtractor;
+    }
+
+    protected void setMinRetryAfter(long minRetryAfter) {
+        this.minRetryAfter = minRetryAfter;
+    }
+
+    protected void setMaxRetryAfter(long maxRetryAfter) {
+        this.maxRetryAfter = maxRetryAfter;
+    }
+
+    protected void setRetryBudget(RetryBudget retryBudget) {
+        this.retryBudget = retryBudget;
+    }
+
+    protected void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    protected void setListener(RetryListener listener) {
+        this.listener = listener;
+    }
+
+    protected void setFailureLogging(FailureLogging failureLogging) {
+        this.failureLogging = failureLogging;
+    }
+
+    void setFailureLogger(FailureLogger failureLogger) {
+        this.failureLogger = failureLogger;
+    }
+
+    protected void setBulkhead(Bulkhead bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+
+    protected void setAdaptivePolicy(AdaptiveRetryPolicy adaptivePolicy) {
+        this.adaptivePolicy = adaptivePolicy;
+    }
+
+    protected void setAttemptTimeout(long attemptTimeout) {
+        this.attemptTimeout = attemptTimeout;
+    }
+
+    protected void setAttemptExecutor(ExecutorService attemptExecutor) {
+        this.attemptExecutor = attemptExecutor;
+    }
+
+    void setHedgeDelay(HedgeDelay hedgeDelay) {
+        this.hedgeDelay = hedgeDelay;
+    }
+
+    protected void setMaxHedges(int maxHedges) {
+        this.maxHedges = maxHedges;
+    }
+
+    protected void setTimer(RetryTimer timer) {
+        this.timer = timer;
+    }
+
+    protected void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    protected void setSleeper(Sleeper sleeper) {
+        this.sleeper = sleeper;
+    }
+
+    protected void setDurableQueue(DurableRetryQueue durableQueue) {
+        this.durableQueue = durableQueue;
+    }
+
+    protected void setFallbackCache(FallbackCache fallbackCache) {
+        this.fallbackCache = fallbackCache;
+    }
+
+    void setPlan(ExecutionPlan plan) {
+        this.plan = plan;
+    }
+
+    protected void setRetryBatchSize(int retryBatchSize) {
+        this.retryBatchSize = retryBatchSize;
+    }
+
+    protected void setVirtualThreadExecutor(ExecutorService virtualThreadExecutor) {
+        this.virtualThreadExecutor = virtualThreadExecutor;
+    }
+
+    protected void setAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
 }
\ No newline at end of file
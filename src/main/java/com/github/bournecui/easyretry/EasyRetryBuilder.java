@@ -5,8 +5,29 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
 
+import com.github.bournecui.easyretry.adaptive.AdaptiveRetryPolicy;
+import com.github.bournecui.easyretry.backoff.BackoffStrategy;
+import com.github.bournecui.easyretry.backoff.FixedBackoff;
+import com.github.bournecui.easyretry.backoff.RetryAfterExtractor;
+import com.github.bournecui.easyretry.budget.RetryBudget;
+import com.github.bournecui.easyretry.budget.SharedRetryBudget;
+import com.github.bournecui.easyretry.bulkhead.Bulkhead;
+import com.github.bournecui.easyretry.circuit.CircuitBreaker;
+import com.github.bournecui.easyretry.clock.Clock;
+import com.github.bournecui.easyretry.clock.Sleeper;
+import com.github.bournecui.easyretry.durable.DurableRetryQueue;
+import com.github.bournecui.easyretry.fallback.FallbackCache;
+import com.github.bournecui.easyretry.listener.RetryListener;
+import com.github.bournecui.easyretry.timer.HashedWheelTimer;
+import com.github.bournecui.easyretry.timer.RetryTimer;
+import com.github.bournecui.easyretry.timer.ScheduledExecutorTimer;
 import com.github.bournecui.easyretry.util.CollectionUtils;
 
 import lombok.Getter;
@@ -32,7 +53,8 @@ public class EasyRetryBuilder {
     private int maxAttempts;
 
     /**
-     * Max wait time, in millisecond, default with no limit.
+     * Max wait time, in millisecond, default with no limit. An attempt which could only start after it, e.g. after
+     * a long backoff, is not started, the retry is given up with a {@link TimeoutException} at once.
      */
     private long maxWaitTime;
 
@@ -41,12 +63,167 @@ public class EasyRetryBuilder {
      */
     private long backoff;
 
+    /**
+     * The strategy to compute the backoff, it overrides the fixed {@link #backoff} if set.
+     */
+    private BackoffStrategy backoffStrategy;
+
+    /**
+     * Reads the delay hinted by the dependency from the exception or the rejected result, such as the
+     * {@code Retry-After} header. The hint replaces the backoff of that retry, default with none.
+     */
+    private RetryAfterExtractor retryAfterExtractor;
+
+    /**
+     * The lower bound of the hinted delays in millisecond, default value is 0.
+     */
+    private long minRetryAfter;
+
+    /**
+     * The upper bound of the hinted delays in millisecond, default with no limit.
+     */
+    private long maxRetryAfter;
+
+    /**
+     * The budget of retries shared by all jobs, default with no limit.
+     */
+    private RetryBudget retryBudget;
+
+    /**
+     * The name of a retry budget shared by all the processes of the host which use the same name, through a
+     * memory-mapped file, default with none. Only one of it and {@code retryBudget} can be set.
+     */
+    private String sharedRetryBudget;
+    private double sharedRetryRatio;
+    private int sharedMaxTokens;
+
+    /**
+     * Caps the attempts running at once, the retries take the same permits as the first attempts, default with no
+     * limit.
+     */
+    private Bulkhead bulkhead;
+
+    /**
+     * The circuit breaker which makes the jobs fail fast when the dependency keeps failing, default with none.
+     */
+    private CircuitBreaker circuitBreaker;
+
+    /**
+     * The listeners notified of every attempt, default with none.
+     */
+    private List<RetryListener> listeners;
+
+    /**
+     * How the failed attempts are logged, default is {@link FailureLogging#FULL}. Otherwise the failures retried
+     * are attached to the exception finally thrown as suppressed ones.
+     */
+    private FailureLogging failureLogging;
+
+    /**
+     * How many failures are logged a second with {@link FailureLogging#RATE_LIMITED}, default value is 10.
+     */
+    private int failureLogRate;
+
+    /**
+     * Shrinks the attempts and stretches the backoffs when the dependency is degraded, default with none. It must
+     * not be shared by several {@code EasyRetry}s.
+     */
+    private AdaptiveRetryPolicy adaptivePolicy;
+
+    /**
+     * The timeout of every attempt in millisecond, default with no limit. The attempts will be run on the
+     * {@link #attemptExecutor} if it is set.
+     */
+    private long attemptTimeout;
+
+    /**
+     * The executor runs the attempts with a timeout and the hedged attempts, default is a cached pool of daemon
+     * threads shared by all instances.
+     */
+    private ExecutorService attemptExecutor;
+
+    /**
+     * The delay in millisecond before a hedged attempt is launched, hedging is disabled by default.
+     * If {@link #hedgeDelayPercentile} is set it is only used until enough latencies are observed.
+     */
+    private long hedgeDelay;
+
+    /**
+     * Take the hedge delay from this percentile of the latencies observed, e.g. 0.95.
+     */
+    private double hedgeDelayPercentile;
+
+    /**
+     * How many hedged attempts can run along with the first one, default value is 1.
+     */
+    private int maxHedges;
+
+    /**
+     * The time source of the max wait time, the latency given to the listener and the rate limit of the failure
+     * logging, default is {@link Clock#SYSTEM}. A virtual clock and sleeper run the blocking retries on simulated
+     * time, the attempt timeout, the hedging and the async backoffs still take real time.
+     */
+    private Clock clock;
+
+    /**
+     * Waits out the backoffs of the blocking retries, default is {@link Sleeper#THREAD}.
+     */
+    private Sleeper sleeper;
+
+    /**
+     * The timer of the backoffs for async jobs, default is a {@link HashedWheelTimer} shared by all instances. It
+     * only fires the backoffs, so the tasks given to it must be short.
+     */
+    private RetryTimer timer;
+
+    /**
+     * Schedules the backoffs for async jobs instead of the timer.
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * The executor runs the attempts of async jobs, default is {@link ForkJoinPool#commonPool()}.
+     */
+    private Executor asyncExecutor;
+
+    /**
+     * Run the async jobs on virtual threads, each job on its own one with the blocking retry loop. The attempts
+     * with a timeout also run on virtual threads unless {@code attemptExecutor} is set. It needs JDK 21+.
+     */
+    private boolean virtualThreads;
+
+    /**
+     * Where {@code runDurable} saves the jobs which run out of attempts, default with none.
+     */
+    private DurableRetryQueue durableQueue;
+
+    /**
+     * The last known good results which {@code callWithFallback} returns when the job fails, default with none.
+     */
+    private FallbackCache fallbackCache;
+
+    /**
+     * The max keys in a follow-up batch of {@code callBatch}, 0 means all the keys failed in one batch.
+     */
+    private int retryBatchSize;
+
+    /**
+     * Run the blocking calls on a loop made for the features set, default value is true. False always runs the
+     * generic loop, e.g. to compare them.
+     */
+    private boolean specializedPlan;
+
     private EasyRetryBuilder() {
         includeExceptions = new HashSet<>();
         excludeExceptions = new HashSet<>();
         maxAttempts = 3;
         backoff = 0L;
         maxWaitTime = 0L;
+        listeners = new ArrayList<>();
+        failureLogging = FailureLogging.FULL;
+        failureLogRate = 10;
+        maxHedges = 1;
+        specializedPlan = true;
     }
 
     public static EasyRetryBuilder newBuilder() {
@@ -61,20 +238,118 @@ public class EasyRetryBuilder {
 
         EasyRetry easyRetry = new EasyRetry();
 
-        easyRetry.setIncludeExceptions(Collections.unmodifiableList(new ArrayList<>(includeExceptions)));
-        easyRetry.setExcludeExceptions(Collections.unmodifiableList(new ArrayList<>(excludeExceptions)));
+        List<Class<? extends Throwable>> includes = Collections.unmodifiableList(new ArrayList<>(includeExceptions));
+        List<Class<? extends Throwable>> excludes = Collections.unmodifiableList(new ArrayList<>(excludeExceptions));
+        easyRetry.setIncludeExceptions(includes);
+        easyRetry.setExcludeExceptions(excludes);
+        easyRetry.setExceptionClassifier(new ExceptionClassifier(includes, excludes));
 
         if (backoff > 0) {
             easyRetry.setBackoff(backoff);
         }
 
-        if (maxAttempts > 0) {
-            easyRetry.setMaxAttempts(maxAttempts);
+        if (backoffStrategy != null) {
+            easyRetry.setBackoffStrategy(backoffStrategy);
+        } else if (backoff > 0) {
+            easyRetry.setBackoffStrategy(new FixedBackoff(backoff));
+        }
+
+        if (minRetryAfter < 0 || maxRetryAfter < 0 || (maxRetryAfter > 0 && maxRetryAfter < minRetryAfter)) {
+            throw new IllegalStateException(
+                    String.format("Bad bounds of retry after: [%d, %d]", minRetryAfter, maxRetryAfter));
         }
+        easyRetry.setRetryAfterExtractor(retryAfterExtractor);
+        easyRetry.setMinRetryAfter(minRetryAfter);
+        easyRetry.setMaxRetryAfter(maxRetryAfter);
+
+        if (maxAttempts <= 0) {
+            throw new IllegalStateException("maxAttempts must be positive: " + maxAttempts);
+        }
+        easyRetry.setMaxAttempts(maxAttempts);
 
         if (maxWaitTime > 0) {
             easyRetry.setMaxWaitTime(maxWaitTime);
         }
+
+        if (sharedRetryBudget != null) {
+            if (retryBudget != null) {
+                throw new IllegalStateException("Only one of retryBudget and sharedRetryBudget can be set!");
+            }
+            easyRetry.setRetryBudget(SharedRetryBudget.open(sharedRetryBudget, sharedRetryRatio, sharedMaxTokens));
+        } else {
+            easyRetry.setRetryBudget(retryBudget);
+        }
+        easyRetry.setBulkhead(bulkhead);
+        easyRetry.setCircuitBreaker(circuitBreaker);
+        List<RetryListener> allListeners = new ArrayList<>(listeners);
+        if (adaptivePolicy != null) {
+            // The policy learns from the attempts the same as a listener.
+            easyRetry.setAdaptivePolicy(adaptivePolicy);
+            allListeners.add(adaptivePolicy);
+        }
+        if (!allListeners.isEmpty()) {
+            // Even a single listener is wrapped, so it can not break the retry loop by throwing.
+            easyRetry.setListener(new CompositeRetryListener(allListeners));
+        }
+        if (failureLogging == null) {
+            throw new IllegalStateException("failureLogging can not be null!");
+        }
+        if (failureLogRate <= 0) {
+            throw new IllegalStateException("failureLogRate must be positive: " + failureLogRate);
+        }
+        easyRetry.setFailureLogging(failureLogging);
+        easyRetry.setClock(clock != null ? clock : Clock.SYSTEM);
+        easyRetry.setFailureLogger(new FailureLogger(failureLogging, failureLogRate, easyRetry.getClock()));
+        boolean hedging = hedgeDelay > 0 || hedgeDelayPercentile > 0;
+        if (hedging) {
+            if (hedgeDelayPercentile >= 1 || maxHedges <= 0) {
+                throw new IllegalStateException("hedgeDelayPercentile must be less than 1 and maxHedges must be"
+                        + " positive: " + hedgeDelayPercentile + ", " + maxHedges);
+            }
+            // Without a fixed delay, no attempt is hedged until enough latencies are observed.
+            easyRetry.setHedgeDelay(
+                    new HedgeDelay(hedgeDelay > 0 ? hedgeDelay : Long.MAX_VALUE, hedgeDelayPercentile));
+            easyRetry.setMaxHedges(maxHedges);
+        }
+
+        if (attemptTimeout > 0) {
+            easyRetry.setAttemptTimeout(attemptTimeout);
+        }
+        ExecutorService virtualThreadExecutor = null;
+        if (virtualThreads) {
+            virtualThreadExecutor = DefaultExecutors.virtualThreadExecutor();
+            if (virtualThreadExecutor == null) {
+                throw new IllegalStateException("Virtual threads need JDK 21+, running on "
+                        + System.getProperty("java.version"));
+            }
+            easyRetry.setVirtualThreadExecutor(virtualThreadExecutor);
+        }
+        if (attemptTimeout > 0 || hedging) {
+            if (attemptExecutor != null) {
+                easyRetry.setAttemptExecutor(attemptExecutor);
+            } else {
+                easyRetry.setAttemptExecutor(
+                        virtualThreads ? virtualThreadExecutor : DefaultExecutors.attemptExecutor());
+            }
+        }
+        easyRetry.setSleeper(sleeper != null ? sleeper : Sleeper.THREAD);
+        if (timer != null && scheduler != null) {
+            throw new IllegalStateException("Only one of timer and scheduler can be set!");
+        }
+        if (timer != null) {
+            easyRetry.setTimer(timer);
+        } else {
+            easyRetry.setTimer(scheduler != null ? new ScheduledExecutorTimer(scheduler) : DefaultExecutors.timer());
+        }
+        easyRetry.setAsyncExecutor(asyncExecutor != null ? asyncExecutor : ForkJoinPool.commonPool());
+        if (retryBatchSize < 0) {
+            throw new IllegalStateException("retryBatchSize can not be negative: " + retryBatchSize);
+        }
+        easyRetry.setRetryBatchSize(retryBatchSize);
+        easyRetry.setDurableQueue(durableQueue);
+        easyRetry.setFallbackCache(fallbackCache);
+        // Last, the plan is chosen from all the above.
+        easyRetry.setPlan(specializedPlan ? ExecutionPlan.of(easyRetry) : new ExecutionPlan.Generic(easyRetry));
         return easyRetry;
     }
 
@@ -102,4 +377,146 @@ public class EasyRetryBuilder {
         this.backoff = backoff;
         return this;
     }
-}
\ No newline at end of file
+
+    public EasyRetryBuilder backoff(BackoffStrategy backoffStrategy) {
+        this.backoffStrategy = backoffStrategy;
+        return this;
+    }
+
+    public EasyRetryBuilder retryAfter(RetryAfterExtractor retryAfterExtractor) {
+        this.retryAfterExtractor = retryAfterExtractor;
+        return this;
+    }
+
+    public EasyRetryBuilder minRetryAfter(long minRetryAfter) {
+        this.minRetryAfter = minRetryAfter;
+        return this;
+    }
+
+    public EasyRetryBuilder maxRetryAfter(long maxRetryAfter) {
+        this.maxRetryAfter = maxRetryAfter;
+        return this;
+    }
+
+    public EasyRetryBuilder bulkhead(Bulkhead bulkhead) {
+        this.bulkhead = bulkhead;
+        return this;
+    }
+
+    public EasyRetryBuilder retryBudget(RetryBudget retryBudget) {
+        this.retryBudget = retryBudget;
+        return this;
+    }
+
+    /**
+     * @param name       The name of the budget, only letters, digits, '.', '_' and '-'.
+     * @param retryRatio The ratio of retries to first attempts of this process.
+     * @param maxTokens  The max number of retries which can be saved for a burst.
+     */
+    public EasyRetryBuilder sharedRetryBudget(String name, double retryRatio, int maxTokens) {
+        this.sharedRetryBudget = name;
+        this.sharedRetryRatio = retryRatio;
+        this.sharedMaxTokens = maxTokens;
+        return this;
+    }
+
+    public EasyRetryBuilder circuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    public EasyRetryBuilder listener(RetryListener listener) {
+        this.listeners.add(listener);
+        return this;
+    }
+
+    public EasyRetryBuilder failureLogging(FailureLogging failureLogging) {
+        this.failureLogging = failureLogging;
+        return this;
+    }
+
+    public EasyRetryBuilder failureLogRate(int failureLogRate) {
+        this.failureLogRate = failureLogRate;
+        return this;
+    }
+
+    public EasyRetryBuilder attemptTimeout(long attemptTimeout) {
+        this.attemptTimeout = attemptTimeout;
+        return this;
+    }
+
+    public EasyRetryBuilder attemptExecutor(ExecutorService attemptExecutor) {
+        this.attemptExecutor = attemptExecutor;
+        return this;
+    }
+
+    public EasyRetryBuilder hedgeDelay(long hedgeDelay) {
+        this.hedgeDelay = hedgeDelay;
+        return this;
+    }
+
+    public EasyRetryBuilder hedgeDelayPercentile(double hedgeDelayPercentile) {
+        this.hedgeDelayPercentile = hedgeDelayPercentile;
+        return this;
+    }
+
+    public EasyRetryBuilder maxHedges(int maxHedges) {
+        this.maxHedges = maxHedges;
+        return this;
+    }
+
+    public EasyRetryBuilder clock(Clock clock) {
+        this.clock = clock;
+        return this;
+    }
+
+    public EasyRetryBuilder sleeper(Sleeper sleeper) {
+        this.sleeper = sleeper;
+        return this;
+    }
+
+    public EasyRetryBuilder timer(RetryTimer timer) {
+        this.timer = timer;
+        return this;
+    }
+
+    public EasyRetryBuilder scheduler(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+        return this;
+    }
+
+    public EasyRetryBuilder asyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+        return this;
+    }
+
+    public EasyRetryBuilder adaptivePolicy(AdaptiveRetryPolicy adaptivePolicy) {
+        this.adaptivePolicy = adaptivePolicy;
+        return this;
+    }
+
+    public EasyRetryBuilder virtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    public EasyRetryBuilder durableQueue(DurableRetryQueue durableQueue) {
+        this.durableQueue = durableQueue;
+        return this;
+    }
+
+    public EasyRetryBuilder fallbackCache(FallbackCache fallbackCache) {
+        this.fallbackCache = fallbackCache;
+        return this;
+    }
+
+    public EasyRetryBuilder retryBatchSize(int retryBatchSize) {
+        this.retryBatchSize = retryBatchSize;
+        return this;
+    }
+
+    public EasyRetryBuilder specializedPlan(boolean specializedPlan) {
+        this.specializedPlan = specializedPlan;
+        return this;
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.bournecui.easyretry;
+
+import java.util.List;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decides if the job will be retried on an exception, according to the included and excluded exceptions.
+ * <p>
+ * The decision only depends on the class of the exception, so it is computed once for each class and kept in a
+ * {@link ClassValue}. Classifying a known exception class is then a single lookup without walking the hierarchy.
+ */
+@Slf4j
+final class ExceptionClassifier {
+
+    private final List<Class<? extends Throwable>> includeExceptions;
+    private final List<Class<? extends Throwable>> excludeExceptions;
+
+    /**
+     * Null when there's neither included nor excluded exception, thus retry on all exceptions.
+     */
+    private final ClassValue<Boolean> decisions;
+
+    ExceptionClassifier(List<Class<? extends Throwable>> includeExceptions,
+                        List<Class<? extends Throwable>> excludeExceptions) {
+        this.includeExceptions = includeExceptions;
+        this.excludeExceptions = excludeExceptions;
+
+        if (includeExceptions.isEmpty() && excludeExceptions.isEmpty()) {
+            this.decisions = null;
+        } else {
+            this.decisions = new ClassValue<Boolean>() {
+                @Override
+                protected Boolean computeValue(Class<?> type) {
+                    return classify((Class<? extends Throwable>) type);
+                }
+            };
+        }
+    }
+
+    boolean retryOn(Throwable e) {
+        return decisions == null || decisions.get(e.getClass());
+    }
+
+    private boolean classify(Class<? extends Throwable> eClass) {
+        boolean includeFilter = !includeExceptions.isEmpty();
+        boolean excludeFilter = !excludeExceptions.isEmpty();
+
+        if (includeFilter && !excludeFilter) {
+            for (Class<? extends Throwable> includeException : includeExceptions) {
+                if (includeException.isAssignableFrom(eClass)) {
+                    log.debug("Parent exception {} is included, retry on exception {}", includeException, eClass);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        if (!includeFilter) {
+            for (Class<? extends Throwable> excludeException : excludeExceptions) {
+                if (excludeException.isAssignableFrom(eClass)) {
+                    log.debug("Parent exception {} is excluded, not retry on exception {}", excludeException, eClass);
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        return classifyNearest(eClass);
+    }
+
+    /**
+     * Both included and excluded exceptions are set, the nearest one in the class hierarchy wins.
+     */
+    private boolean classifyNearest(Class<? extends Throwable> eClass) {
+        for (Class<?> clazz = eClass; clazz != null; clazz = clazz.getSuperclass()) {
+            if (excludeExceptions.contains(clazz)) { // 被排除了
+                log.debug("{} is excluded, not retry.", clazz);
+                return false;
+            } else if (includeExceptions.contains(clazz)) { // 被包含了
+                log.debug("{} is included, retry.", clazz);
+                return true;
+            }
+        }
+        // 即没有被排除也没有被包含
+        log.debug("Exception not included, not retry.");
+        return false;
+    }
+}
@@ -0,0 +1,229 @@
+package com.github.bournecui.easyretry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.bournecui.easyretry.clock.Sleeper;
+
+/**
+ * The retry loop of the blocking calls, chosen once by the builder for the configuration.
+ * <p>
+ * The callables and the runnables have their own entry, so the job is called without finding out its type first.
+ * Most instances only set the attempts, the exceptions and the backoff, they run the {@link Simple} plan, which
+ * calls the job straight away and keeps all the retry work out of the first attempt. Any other feature runs the
+ * {@link Generic} loop of {@link EasyRetry}. The plan is chosen from the instance as built, it must not be
+ * changed afterwards.
+ */
+abstract class ExecutionPlan {
+
+    abstract <T> T call(EasyCallable<T> easyCallable, ResultPredicate<T> resultPredicate)
+            throws InterruptedException;
+
+    abstract void run(EasyRunnable easyRunnable) throws InterruptedException;
+
+    /**
+     * @return The simple plan if none of the listener, the max wait time, the attempt timeout, the retry budget,
+     * the circuit breaker, the bulkhead, the adaptive policy and the retry after extractor is set, otherwise the
+     * generic one.
+     */
+    static ExecutionPlan of(EasyRetry easyRetry) {
+        boolean simple = easyRetry.getListener() == null
+                && easyRetry.getMaxWaitTime() <= 0
+                && easyRetry.getAttemptTimeout() <= 0
+                && easyRetry.getRetryBudget() == null
+                && easyRetry.getCircuitBreaker() == null
+                && easyRetry.getBulkhead() == null
+                && easyRetry.getAdaptivePolicy() == null
+                && easyRetry.getRetryAfterExtractor() == null;
+        return simple ? new Simple(easyRetry) : new Generic(easyRetry);
+    }
+
+    /**
+     * Runs every feature, see {@link EasyRetry#execute(EasyJob, ResultPredicate)}.
+     */
+    static final class Generic extends ExecutionPlan {
+
+        private final EasyRetry easyRetry;
+
+        Generic(EasyRetry easyRetry) {
+            this.easyRetry = easyRetry;
+        }
+
+        @Override
+        <T> T call(EasyCallable<T> easyCallable, ResultPredicate<T> resultPredicate) throws InterruptedException {
+            return (T) easyRetry.execute(easyCallable, resultPredicate);
+        }
+
+        @Override
+        void run(EasyRunnable easyRunnable) throws InterruptedException {
+            easyRetry.execute(easyRunnable, null);
+        }
+    }
+
+    /**
+     * Only the attempts, the exceptions retried, the backoff and the failure logging. The first attempt is kept
+     * small enough to be inlined into the caller, the retries are left to loops of their own, one for each type of
+     * job.
+     */
+    static final class Simple extends ExecutionPlan {
+
+        /**
+         * The blocking calls log as {@link EasyRetry} whichever the plan.
+         */
+        private static final Logger log = LoggerFactory.getLogger(EasyRetry.class);
+
+        private final EasyRetry easyRetry;
+        private final int maxAttempts;
+        private final FailureLogger failureLogger;
+        private final Sleeper sleeper;
+
+        Simple(EasyRetry easyRetry) {
+            this.easyRetry = easyRetry;
+            this.maxAttempts = easyRetry.getMaxAttempts();
+            this.failureLogger = easyRetry.getFailureLogger();
+            this.sleeper = easyRetry.getSleeper();
+        }
+
+        @Override
+        <T> T call(EasyCallable<T> easyCallable, ResultPredicate<T> resultPredicate) throws InterruptedException {
+            if (log.isDebugEnabled()) {
+                log.debug("attempt:{}", 1);
+            }
+            T result;
+            try {
+                result = easyCallable.call();
+                if (resultPredicate == null || resultPredicate.test(result)) {
+                    finished(1);
+                    return result;
+                }
+            } catch (Throwable e) {
+                return retryCall(easyCallable, resultPredicate, e, null);
+            }
+            return retryCall(easyCallable, resultPredicate, null, result);
+        }
+
+        @Override
+        void run(EasyRunnable easyRunnable) throws InterruptedException {
+            if (log.isDebugEnabled()) {
+                log.debug("attempt:{}", 1);
+            }
+            try {
+                easyRunnable.run();
+            } catch (Throwable e) {
+                retryRun(easyRunnable, e);
+                return;
+            }
+            finished(1);
+        }
+
+        private void finished(int attempt) {
+            if (log.isDebugEnabled()) {
+                log.debug("Job finished after {}/{} attempts.", attempt, maxAttempts);
+            }
+        }
+
+        /**
+         * Go on after the first attempt of a callable failed.
+         *
+         * @param failure The exception thrown by the first attempt, null if its result is rejected.
+         * @param result  The result rejected.
+         */
+        private <T> T retryCall(EasyCallable<T> easyCallable, ResultPredicate<T> resultPredicate, Throwable failure,
+                                T result) throws InterruptedException {
+            List<Throwable> failures = null;
+            long delay = 0L;
+            int attempt = 1;
+            while (true) {
+                if (failure == null) {
+                    log.debug("ResultPredicate return false, retry will be continued! ");
+                    if (attempt == maxAttempts) {
+                        return result;
+                    }
+                } else {
+                    failures = failed(attempt, failure, failures);
+                }
+
+                delay = backoff(attempt, delay);
+                attempt++;
+                failure = null;
+                try {
+                    result = easyCallable.call();
+                    if (resultPredicate == null || resultPredicate.test(result)) {
+                        finished(attempt);
+                        return result;
+                    }
+                } catch (Throwable e) {
+                    failure = e;
+                }
+            }
+        }
+
+        /**
+         * Go on after the first attempt of a runnable failed, there's no result to reject.
+         */
+        private void retryRun(EasyRunnable easyRunnable, Throwable failure) throws InterruptedException {
+            List<Throwable> failures = null;
+            long delay = 0L;
+            int attempt = 1;
+            while (true) {
+                failures = failed(attempt, failure, failures);
+                delay = backoff(attempt, delay);
+                attempt++;
+                try {
+                    easyRunnable.run();
+                    finished(attempt);
+                    return;
+                } catch (Throwable e) {
+                    failure = e;
+                }
+            }
+        }
+
+        /**
+         * Throw the failure if it is not retried, otherwise keep it for the exception thrown at last.
+         *
+         * @return The failures kept so far, null if none is.
+         */
+        private List<Throwable> failed(int attempt, Throwable failure, List<Throwable> failures)
+                throws InterruptedException {
+            if (failure instanceof InterruptedException) {
+                throw (InterruptedException) failure;
+            }
+            if (attempt == maxAttempts || !easyRetry.retryOnException(failure)) {
+                FailureLogger.attach(failure, failures);
+                failureLogger.attemptFailed(log, true, attempt, maxAttempts, failure);
+                throw EasyRetry.<RuntimeException>sneakyThrow(failure);
+            }
+            failureLogger.attemptFailed(log, false, attempt, maxAttempts, failure);
+            if (failureLogger.attachesFailures()) {
+                if (failures == null) {
+                    failures = new ArrayList<>(maxAttempts - 1);
+                }
+                failures.add(failure);
+            }
+            return failures;
+        }
+
+        /**
+         * Sleep before the next attempt.
+         *
+         * @return The delay of the strategy, neither an adaptive policy nor a hint, so it is waited as is.
+         */
+        private long backoff(int attempt, long previousDelay) throws InterruptedException {
+            long delay = easyRetry.strategyDelay(attempt, previousDelay);
+            if (delay > 0) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Sleep, backoff:{}", delay);
+                }
+                sleeper.sleep(delay);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("attempt:{}", attempt + 1);
+            }
+            return delay;
+        }
+    }
+}
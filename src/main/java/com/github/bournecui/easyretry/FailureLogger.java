@@ -0,0 +1,132 @@
+package com.github.bournecui.easyretry;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+
+import com.github.bournecui.easyretry.clock.Clock;
+
+/**
+ * Logs the failed attempts by the {@link FailureLogging} mode. A failure not logged costs a level check, and for
+ * {@link FailureLogging#RATE_LIMITED} a few atomic operations.
+ */
+final class FailureLogger {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final FailureLogging mode;
+    private final int permitsPerSecond;
+    /**
+     * The time source of the rate limit.
+     */
+    private final Clock clock;
+
+    /**
+     * The second of the rate limit, how many failures are logged in it, and how many are skipped since the last
+     * one logged.
+     */
+    private final AtomicLong window = new AtomicLong();
+    private final AtomicInteger logged = new AtomicInteger();
+    private final AtomicLong skipped = new AtomicLong();
+
+    FailureLogger(FailureLogging mode, int permitsPerSecond, Clock clock) {
+        this.mode = mode;
+        this.permitsPerSecond = permitsPerSecond;
+        this.clock = clock;
+    }
+
+    /**
+     * @return If the failures retried should be attached to the exception finally thrown.
+     */
+    boolean attachesFailures() {
+        return mode != FailureLogging.FULL;
+    }
+
+    /**
+     * @param last If it is the failure finally thrown, logged as ERROR, otherwise as WARN.
+     */
+    void attemptFailed(Logger log, boolean last, int attempt, int maxAttempts, Throwable e) {
+        if (mode == FailureLogging.OFF || !(last ? log.isErrorEnabled() : log.isWarnEnabled())) {
+            return;
+        }
+        if (mode == FailureLogging.SUMMARY) {
+            String summary = "Exception occurs during the {}/{} attempt: {}";
+            if (last) {
+                log.error(summary, attempt, maxAttempts, e.toString());
+            } else {
+                log.warn(summary, attempt, maxAttempts, e.toString());
+            }
+            return;
+        }
+
+        long skippedFailures = 0L;
+        if (mode == FailureLogging.RATE_LIMITED) {
+            if (!tryAcquire()) {
+                skipped.incrementAndGet();
+                return;
+            }
+            skippedFailures = skipped.getAndSet(0L);
+        }
+        String message = String.format("Exception occurs during the %d/%d attempt.", attempt, maxAttempts);
+        if (skippedFailures > 0) {
+            message += String.format(" %d failures were not logged before.", skippedFailures);
+        }
+        if (last) {
+            log.error(message, e);
+        } else {
+            log.warn(message, e);
+        }
+    }
+
+    void batchFailed(Logger log, int keys, Throwable e) {
+        if (mode == FailureLogging.OFF || !log.isWarnEnabled()) {
+            return;
+        }
+        if (mode == FailureLogging.SUMMARY) {
+            log.warn("Exception occurs during the batch call of {} keys: {}", keys, e.toString());
+        } else if (mode == FailureLogging.FULL || tryAcquire()) {
+            log.warn(String.format("Exception occurs during the batch call of %d keys.", keys), e);
+        } else {
+            skipped.incrementAndGet();
+        }
+    }
+
+    private boolean tryAcquire() {
+        long second = clock.nanoTime() / SECOND;
+        long current = window.get();
+        if (second != current && window.compareAndSet(current, second)) {
+            logged.set(0);
+        }
+        return logged.incrementAndGet() <= permitsPerSecond;
+    }
+
+    /**
+     * Attach the failures retried to the exception finally thrown, those already attached and the exception itself
+     * are skipped, so an exception instance thrown again and again does not pile them up.
+     *
+     * @param failures The failures retried, may be null.
+     */
+    static <E extends Throwable> E attach(E thrown, List<Throwable> failures) {
+        if (failures == null) {
+            return thrown;
+        }
+        for (Throwable failure : failures) {
+            if (failure != thrown && !contains(thrown.getSuppressed(), failure)) {
+                thrown.addSuppressed(failure);
+            }
+        }
+        return thrown;
+    }
+
+    private static boolean contains(Throwable[] attached, Throwable failure) {
+        for (Throwable e : attached) {
+            if (e == failure) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.bournecui.easyretry;
+
+/**
+ * How the exceptions of the failed attempts are logged. Logging a stack trace costs tens of microseconds, during an
+ * outage when every attempt fails it can cost more than the retries themselves.
+ * <p>
+ * Except for {@link #FULL}, the exceptions of the attempts retried are attached to the exception finally thrown as
+ * suppressed ones, so they can still be looked into.
+ */
+public enum FailureLogging {
+
+    /**
+     * Log every failure with its stack trace, a retried one as WARN and the last one as ERROR.
+     */
+    FULL,
+
+    /**
+     * Log every failure in one line, without the stack trace.
+     */
+    SUMMARY,
+
+    /**
+     * Log the failures with their stack traces, but no more than {@code failureLogRate} a second. The next failure
+     * logged tells how many were skipped.
+     */
+    RATE_LIMITED,
+
+    /**
+     * Do not log the failures.
+     */
+    OFF
+}
@@ -0,0 +1,52 @@
+package com.github.bournecui.easyretry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.bournecui.easyretry.listener.LatencyHistogram;
+
+/**
+ * The delay before a hedged attempt is launched. It is either fixed, or taken from a percentile of the latency of
+ * the latest attempts.
+ * <p>
+ * The percentile is recomputed once every {@link #WINDOW} samples and then the histogram starts over, so reading
+ * the delay is a volatile read and old latencies are forgotten.
+ */
+final class HedgeDelay {
+
+    static final int WINDOW = 1000;
+
+    /**
+     * Not positive if the delay is fixed.
+     */
+    private final double percentile;
+    private final LatencyHistogram histogram;
+    private final AtomicInteger samples;
+
+    private volatile long delay;
+
+    HedgeDelay(long initialDelay, double percentile) {
+        this.delay = initialDelay;
+        this.percentile = percentile;
+        this.histogram = percentile > 0 ? new LatencyHistogram() : null;
+        this.samples = new AtomicInteger();
+    }
+
+    /**
+     * @return The delay in millisecond.
+     */
+    long get() {
+        return delay;
+    }
+
+    void record(long elapsedNanos) {
+        if (histogram == null) {
+            return;
+        }
+        histogram.record(elapsedNanos);
+        if (samples.incrementAndGet() % WINDOW == 0) {
+            delay = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(histogram.getPercentile(percentile)));
+            histogram.reset();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.github.bournecui.easyretry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.github.bournecui.easyretry.clock.Clock;
+import com.github.bournecui.easyretry.listener.RetryListener;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One hedged call. The first attempt is launched at once, if it is not finished after the hedge delay another one
+ * is launched, up to {@code maxHedges} attempts running along with the first one. The first result accepted by
+ * the {@link ResultPredicate} wins and the other attempts are cancelled.
+ * <p>
+ * A failed attempt, or one whose result is rejected, is replaced at once without backoff. No more than
+ * {@code maxAttempts} attempts are launched in all. The hedged call takes a single permit of the bulkhead, however
+ * many attempts it runs.
+ */
+@Slf4j
+final class HedgedExecution<T> {
+
+    private final EasyRetry easyRetry;
+    private final EasyCallable<T> easyCallable;
+    private final ResultPredicate<T> resultPredicate;
+    private final RetryListener listener;
+    private final Clock clock;
+    private final CompletionService<Attempt<T>> completionService;
+    private final List<Future<Attempt<T>>> futures = new ArrayList<>();
+    /**
+     * The failures retried, attached to the exception finally thrown unless they are logged in full.
+     */
+    private List<Throwable> failures;
+
+    private int launched;
+    private int running;
+    /**
+     * When the latest attempt was launched, on the clock. The next hedge is due the hedge delay after it.
+     */
+    private long lastLaunchAt;
+
+    HedgedExecution(EasyRetry easyRetry, EasyCallable<T> easyCallable, ResultPredicate<T> resultPredicate) {
+        this.easyRetry = easyRetry;
+        this.easyCallable = easyCallable;
+        this.resultPredicate = resultPredicate;
+        this.listener = easyRetry.getListener();
+        this.clock = easyRetry.getClock();
+        this.completionService = new ExecutorCompletionService<>(easyRetry.getAttemptExecutor());
+    }
+
+    T call() throws InterruptedException {
+        int maxAttempts = easyRetry.attemptsLimit();
+        long maxWaitTime = easyRetry.getMaxWaitTime();
+        long deadline = easyRetry.deadline();
+        int maxRunning = 1 + easyRetry.getMaxHedges();
+
+        easyRetry.checkCircuitBreaker();
+        easyRetry.acquirePermit(1, true);
+        if (easyRetry.getRetryBudget() != null) {
+            easyRetry.getRetryBudget().deposit();
+        }
+
+        Attempt<T> last = null;
+        try {
+            launch();
+            while (true) {
+                boolean canHedge = launched < maxAttempts && running < maxRunning;
+                long hedgeDelay = canHedge ? TimeUnit.MILLISECONDS.toNanos(easyRetry.getHedgeDelay().get())
+                        : Long.MAX_VALUE;
+                // From the latest launch, an attempt finished in between does not put the next hedge off.
+                long wait = hedgeDelay == Long.MAX_VALUE ? Long.MAX_VALUE
+                        : lastLaunchAt + hedgeDelay - clock.nanoTime();
+                if (maxWaitTime > 0) {
+                    wait = Math.min(wait, deadline - clock.nanoTime());
+                }
+
+                Future<Attempt<T>> done = wait == Long.MAX_VALUE
+                        ? completionService.take()
+                        : completionService.poll(Math.max(wait, 0L), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    if (easyRetry.pastDeadline(deadline, 0L)) {
+                        break;
+                    }
+                    if (hedgeDelay == Long.MAX_VALUE || clock.nanoTime() - lastLaunchAt < hedgeDelay) {
+                        // Woken up for the deadline, which is not past on the clock yet, or before the hedge is due.
+                        continue;
+                    }
+                    if (easyRetry.acquireRetry(launched)) {
+                        log.debug("Attempt is slow, launch a hedged one.");
+                        launch();
+                    } else if (running == 0) {
+                        break;
+                    } else {
+                        // Not allowed to hedge, wait for the running attempts only.
+                        maxRunning = running;
+                    }
+                    continue;
+                }
+
+                running--;
+                last = done.get();
+                if (last.accepted) {
+                    easyRetry.recordOutcome(true);
+                    if (listener != null) {
+                        listener.onSuccess(last.attempt, last.result, last.elapsedNanos);
+                    }
+                    return last.result;
+                }
+
+                easyRetry.recordOutcome(false);
+                if (last.failure != null) {
+                    if (listener != null) {
+                        listener.onAttemptFailure(last.attempt, last.failure, last.elapsedNanos);
+                    }
+                    if (!easyRetry.retryOnException(last.failure)) {
+                        return exhausted(last);
+                    }
+                    FailureLogger failureLogger = easyRetry.getFailureLogger();
+                    failureLogger.attemptFailed(log, false, last.attempt, easyRetry.getMaxAttempts(), last.failure);
+                    if (failureLogger.attachesFailures()) {
+                        if (failures == null) {
+                            failures = new ArrayList<>();
+                        }
+                        failures.add(last.failure);
+                    }
+                } else if (listener != null) {
+                    listener.onResultRejected(last.attempt, last.result, last.elapsedNanos);
+                }
+
+                if (easyRetry.pastDeadline(deadline, 0L)) {
+                    break;
+                }
+                if (running == 0) {
+                    if (launched >= maxAttempts || !easyRetry.acquireRetry(launched)) {
+                        return exhausted(last);
+                    }
+                    launch();
+                }
+            }
+        } catch (java.util.concurrent.ExecutionException e) {
+            // The attempts catch everything, it never happens.
+            throw new EasyRetryException(e.getCause());
+        } finally {
+            for (Future<Attempt<T>> future : futures) {
+                future.cancel(true);
+            }
+            easyRetry.releasePermit();
+        }
+
+        int attempts = last == null ? launched : last.attempt;
+        if (listener != null) {
+            listener.onTimeout(attempts);
+        }
+        throw FailureLogger.attach(new TimeoutException(easyRetry.timeoutMessage(attempts)), failures);
+    }
+
+    private T exhausted(Attempt<T> last) {
+        if (listener != null) {
+            listener.onExhausted(last.attempt, last.failure);
+        }
+        if (last.failure != null) {
+            FailureLogger.attach(last.failure, failures);
+            easyRetry.getFailureLogger().attemptFailed(log, true, last.attempt, easyRetry.getMaxAttempts(),
+                    last.failure);
+            throw EasyRetry.<RuntimeException>sneakyThrow(last.failure);
+        }
+        return last.result;
+    }
+
+    private void launch() {
+        final int attempt = ++launched;
+        running++;
+        lastLaunchAt = clock.nanoTime();
+        if (listener != null) {
+            listener.onAttemptStart(attempt);
+        }
+        futures.add(completionService.submit(() -> {
+            long start = clock.nanoTime();
+            try {
+                T result = easyCallable.call();
+                long elapsed = clock.nanoTime() - start;
+                easyRetry.getHedgeDelay().record(elapsed);
+                boolean accepted = resultPredicate == null || resultPredicate.test(result);
+                return new Attempt<>(attempt, accepted, result, null, elapsed);
+            } catch (Throwable e) {
+                return new Attempt<>(attempt, false, null, e, clock.nanoTime() - start);
+            }
+        }));
+    }
+
+    private static final class Attempt<T> {
+        private final int attempt;
+        private final boolean accepted;
+        private final T result;
+        private final Throwable failure;
+        private final long elapsedNanos;
+
+        private Attempt(int attempt, boolean accepted, T result, Throwable failure, long elapsedNanos) {
+            this.attempt = attempt;
+            this.accepted = accepted;
+            this.result = result;
+            this.failure = failure;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+}
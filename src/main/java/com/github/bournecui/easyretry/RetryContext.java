@@ -0,0 +1,69 @@
+package com.github.bournecui.easyretry;
+
+import java.util.concurrent.TimeUnit;
+
+import com.github.bournecui.easyretry.clock.Clock;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * The state of the retry an attempt of an {@link EasyContextCallable} runs in. A new context is given to every
+ * attempt.
+ */
+@Getter
+public final class RetryContext {
+
+    /**
+     * The attempt running, starting from 1.
+     */
+    private final int attempt;
+
+    private final int maxAttempts;
+
+    /**
+     * The exception thrown by the previous attempt, null for the first attempt or if the previous result was
+     * rejected.
+     */
+    private final Throwable lastFailure;
+
+    @Getter(AccessLevel.NONE)
+    private final long deadline;
+    @Getter(AccessLevel.NONE)
+    private final boolean hasDeadline;
+    @Getter(AccessLevel.NONE)
+    private final Clock clock;
+
+    /**
+     * @param deadline    The {@link Clock#nanoTime()} the attempt must finish by.
+     * @param hasDeadline If there's a deadline at all.
+     */
+    RetryContext(int attempt, int maxAttempts, Throwable lastFailure, long deadline, boolean hasDeadline,
+                 Clock clock) {
+        this.attempt = attempt;
+        this.maxAttempts = maxAttempts;
+        this.lastFailure = lastFailure;
+        this.deadline = deadline;
+        this.hasDeadline = hasDeadline;
+        this.clock = clock;
+    }
+
+    /**
+     * @return The nanoseconds left before the max wait time or the attempt timeout, whichever comes first, so the
+     * job can bound its own waits. {@link Long#MAX_VALUE} if there's neither, never negative.
+     */
+    public long getRemainingNanos() {
+        return hasDeadline ? Math.max(deadline - clock.nanoTime(), 0L) : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return The time left as {@link #getRemainingNanos()}, in millisecond.
+     */
+    public long getRemainingMillis() {
+        return hasDeadline ? TimeUnit.NANOSECONDS.toMillis(getRemainingNanos()) : Long.MAX_VALUE;
+    }
+
+    public boolean isLastAttempt() {
+        return attempt >= maxAttempts;
+    }
+}
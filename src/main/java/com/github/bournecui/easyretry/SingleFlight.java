@@ -0,0 +1,128 @@
+package com.github.bournecui.easyretry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The calls in flight by key. The first caller of a key runs the call, the callers of the same key coming while it
+ * runs wait for its outcome instead of running their own. Joining is lock-free, a {@code putIfAbsent} on the map of
+ * futures.
+ * <p>
+ * The key is removed before the outcome is given out, so a caller coming after the outcome starts a new call. A
+ * caller waits for the call in flight no longer than the max wait time of its own.
+ */
+@Slf4j
+final class SingleFlight {
+
+    private final EasyRetry easyRetry;
+    private final ConcurrentMap<Object, CompletableFuture<Object>> calls = new ConcurrentHashMap<>();
+
+    SingleFlight(EasyRetry easyRetry) {
+        this.easyRetry = easyRetry;
+    }
+
+    /**
+     * @param call Runs the call, only for the first caller of the key.
+     *
+     * @return The result of the call, the exception of the call is thrown to all the callers.
+     */
+    <T> T call(Object key, Supplier<T> call) {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> leader = calls.putIfAbsent(key, flight);
+        if (leader != null) {
+            if (log.isDebugEnabled()) {
+                log.debug("Join the call in flight of {}", key);
+            }
+            return join(leader);
+        }
+
+        T result;
+        try {
+            result = call.get();
+        } catch (Throwable e) {
+            calls.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        calls.remove(key, flight);
+        flight.complete(result);
+        return result;
+    }
+
+    /**
+     * Wait for the outcome of the call in flight, until the deadline of the caller if there's a max wait time.
+     * An interruption is thrown with the interrupt status restored, never taken for a null result.
+     */
+    private <T> T join(CompletableFuture<Object> leader) {
+        long deadline = easyRetry.deadline();
+        try {
+            if (easyRetry.getMaxWaitTime() <= 0) {
+                return (T) leader.get();
+            }
+            return (T) leader.get(deadline - easyRetry.getClock().nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw EasyRetry.<RuntimeException>sneakyThrow(e.getCause());
+        } catch (java.util.concurrent.TimeoutException e) {
+            throw new TimeoutException("It has reach the max wait time waiting for the call in flight!");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw EasyRetry.<RuntimeException>sneakyThrow(e);
+        }
+    }
+
+    /**
+     * @param call Starts the call, only for the first caller of the key.
+     *
+     * @return A future of the outcome of the call, of its own for every caller.
+     */
+    <T> CompletableFuture<T> callAsync(Object key, Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> leader = calls.putIfAbsent(key, flight);
+        if (leader == null) {
+            CompletableFuture<T> future;
+            try {
+                future = call.get();
+            } catch (Throwable e) {
+                calls.remove(key, flight);
+                flight.completeExceptionally(e);
+                throw e;
+            }
+            future.whenComplete((result, e) -> {
+                calls.remove(key, flight);
+                if (e == null) {
+                    flight.complete(result);
+                } else {
+                    flight.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+                }
+            });
+            leader = flight;
+        } else if (log.isDebugEnabled()) {
+            log.debug("Join the call in flight of {}", key);
+        }
+
+        // A future of its own, so a caller cancelling it does not cancel the others.
+        CompletableFuture<T> future = new CompletableFuture<>();
+        leader.whenComplete((result, e) -> {
+            if (e == null) {
+                future.complete((T) result);
+            } else {
+                future.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @return How many keys have a call in flight.
+     */
+    int size() {
+        return calls.size();
+    }
+}
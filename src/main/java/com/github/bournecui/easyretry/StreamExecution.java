@@ -0,0 +1,166 @@
+package com.github.bournecui.easyretry;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.github.bournecui.easyretry.clock.Clock;
+import com.github.bournecui.easyretry.listener.RetryListener;
+import com.github.bournecui.easyretry.stream.StreamSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One resumable stream. The position of every element consumed is kept, a failure reopens the source right after
+ * it, so a failure costs the elements read again since the last position instead of the whole stream.
+ * <p>
+ * The attempts are counted by position: the failures in a row without any element consumed between them. An
+ * element consumed starts the count, the backoff and the max wait time over, the max wait time is counted from the
+ * first failure at the position. Every opening of the source takes a permit of the bulkhead, held until it ends.
+ */
+@Slf4j
+final class StreamExecution<T, P> {
+
+    private final EasyRetry easyRetry;
+    private final StreamSource<T, P> source;
+    private final Function<? super T, ? extends P> positionOf;
+    private final Consumer<? super T> consumer;
+
+    /**
+     * The position of the last element consumed, and if any element is consumed since the source was opened.
+     */
+    private P position;
+    private boolean progressed;
+
+    StreamExecution(EasyRetry easyRetry, StreamSource<T, P> source, Function<? super T, ? extends P> positionOf,
+                    Consumer<? super T> consumer) {
+        this.easyRetry = easyRetry;
+        this.source = source;
+        this.positionOf = positionOf;
+        this.consumer = consumer;
+    }
+
+    P run(P start) throws InterruptedException {
+        RetryListener listener = easyRetry.getListener();
+        Clock clock = easyRetry.getClock();
+        FailureLogger failureLogger = easyRetry.getFailureLogger();
+        position = start;
+        int maxAttempts = 0;
+        long deadline = 0L;
+        long delay = 0L;
+        long strategyDelay = 0L;
+        List<Throwable> failures = null;
+        // The failures at the current position.
+        int attempt = 0;
+        easyRetry.checkCircuitBreaker();
+        easyRetry.acquirePermit(1, true);
+        if (easyRetry.getRetryBudget() != null) {
+            easyRetry.getRetryBudget().deposit();
+        }
+        while (true) {
+            if (log.isDebugEnabled()) {
+                log.debug("Open the stream after {}", position);
+            }
+            long attemptStart = 0L;
+            if (listener != null) {
+                listener.onAttemptStart(attempt + 1);
+                attemptStart = clock.nanoTime();
+            }
+            Throwable failure;
+            try {
+                consume();
+                easyRetry.recordOutcome(true);
+                if (listener != null) {
+                    listener.onSuccess(attempt + 1, position, clock.nanoTime() - attemptStart);
+                }
+                return position;
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                easyRetry.releasePermit();
+            }
+
+            easyRetry.recordOutcome(false);
+            if (progressed) {
+                // A failure at a new position, its attempts start over.
+                attempt = 0;
+                delay = 0L;
+                strategyDelay = 0L;
+                failures = null;
+            }
+            if (++attempt == 1) {
+                maxAttempts = easyRetry.attemptsLimit();
+                deadline = easyRetry.deadline();
+            }
+            if (listener != null) {
+                listener.onAttemptFailure(attempt, failure, clock.nanoTime() - attemptStart);
+            }
+            if (attempt >= maxAttempts || !easyRetry.retryOnException(failure)) {
+                FailureLogger.attach(failure, failures);
+                failureLogger.attemptFailed(log, true, attempt, maxAttempts, failure);
+                if (listener != null) {
+                    listener.onExhausted(attempt, failure);
+                }
+                throw EasyRetry.<RuntimeException>sneakyThrow(failure);
+            }
+            failureLogger.attemptFailed(log, false, attempt, maxAttempts, failure);
+            if (failureLogger.attachesFailures()) {
+                if (failures == null) {
+                    failures = new ArrayList<>(maxAttempts - 1);
+                }
+                failures.add(failure);
+            }
+
+            strategyDelay = easyRetry.strategyDelay(attempt, strategyDelay);
+            delay = easyRetry.nextBackoff(strategyDelay, easyRetry.retryAfter(failure, null));
+            if (easyRetry.pastDeadline(deadline, delay)) {
+                // The next attempt could only start after the max wait time.
+                if (listener != null) {
+                    listener.onTimeout(attempt);
+                }
+                throw FailureLogger.attach(new TimeoutException(easyRetry.timeoutMessage(attempt)), failures);
+            }
+            boolean retry = easyRetry.acquireRetry(attempt);
+            if (retry) {
+                easyRetry.sleepBackoff(delay);
+                retry = easyRetry.acquirePermit(attempt + 1, true);
+            }
+            if (!retry) {
+                if (listener != null) {
+                    listener.onExhausted(attempt, failure);
+                }
+                throw EasyRetry.<RuntimeException>sneakyThrow(FailureLogger.attach(failure, failures));
+            }
+        }
+    }
+
+    /**
+     * Open the source after the position and consume it to the end, the position follows every element consumed.
+     */
+    private void consume() {
+        progressed = false;
+        Iterator<T> iterator = source.open(position);
+        try {
+            while (iterator.hasNext()) {
+                T element = iterator.next();
+                consumer.accept(element);
+                position = positionOf.apply(element);
+                progressed = true;
+            }
+        } finally {
+            close(iterator);
+        }
+    }
+
+    private static void close(Iterator<?> iterator) {
+        if (iterator instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) iterator).close();
+            } catch (Exception e) {
+                log.warn("Failed to close the stream.", e);
+            }
+        }
+    }
+}
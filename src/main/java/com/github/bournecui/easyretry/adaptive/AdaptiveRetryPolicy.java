@@ -0,0 +1,140 @@
+package com.github.bournecui.easyretry.adaptive;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.bournecui.easyretry.listener.RetryListener;
+
+import lombok.Getter;
+
+/**
+ * Adapts the retry policy of an {@code EasyRetry} to the health of its dependency. It keeps exponentially
+ * decayed averages of the success rate and the latency of the attempts, and derives a health between 0 and 1:
+ * <ul>
+ * <li>1 while the success rate is at least {@code healthySuccessRate}, the configured policy is used.
+ * <li>0 when the success rate falls to {@code minSuccessRate}, no retry is made and the backoff is stretched
+ * {@code maxBackoffFactor} times.
+ * <li>In between, the max attempts shrink and the backoff stretches linearly.
+ * </ul>
+ * A latency above {@code latencyThreshold} lowers the health in proportion. The first attempts keep being
+ * sampled, so the configured policy comes back once the dependency recovers.
+ * <p>
+ * The averages are doubles kept in {@link AtomicLong}s and updated by CAS, so recording never takes a lock. It is a
+ * {@link RetryListener} fed by the {@code EasyRetry} it is set to, use {@link AdaptiveRetryPolicyBuilder} to build
+ * one for each {@code EasyRetry}.
+ */
+public class AdaptiveRetryPolicy implements RetryListener {
+
+    @Getter
+    private final double decay;
+    @Getter
+    private final double healthySuccessRate;
+    @Getter
+    private final double minSuccessRate;
+    @Getter
+    private final long latencyThreshold;
+    @Getter
+    private final double maxBackoffFactor;
+
+    private final double latencyThresholdNanos;
+
+    private final AtomicLong successRate = new AtomicLong(Double.doubleToRawLongBits(1.0));
+    private final AtomicLong latency = new AtomicLong(Double.doubleToRawLongBits(0.0));
+
+    AdaptiveRetryPolicy(double decay, double healthySuccessRate, double minSuccessRate, long latencyThreshold,
+                        double maxBackoffFactor) {
+        this.decay = decay;
+        this.healthySuccessRate = healthySuccessRate;
+        this.minSuccessRate = minSuccessRate;
+        this.latencyThreshold = latencyThreshold;
+        this.maxBackoffFactor = maxBackoffFactor;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThreshold);
+    }
+
+    @Override
+    public void onAttemptFailure(int attempt, Throwable throwable, long elapsedNanos) {
+        record(0.0, elapsedNanos);
+    }
+
+    @Override
+    public void onResultRejected(int attempt, Object result, long elapsedNanos) {
+        record(0.0, elapsedNanos);
+    }
+
+    @Override
+    public void onSuccess(int attempt, Object result, long elapsedNanos) {
+        record(1.0, elapsedNanos);
+    }
+
+    private void record(double outcome, long elapsedNanos) {
+        update(successRate, outcome);
+        if (latencyThresholdNanos > 0) {
+            update(latency, elapsedNanos);
+        }
+    }
+
+    private void update(AtomicLong average, double sample) {
+        long current;
+        long next;
+        do {
+            current = average.get();
+            double value = Double.longBitsToDouble(current);
+            next = Double.doubleToRawLongBits(value + decay * (sample - value));
+        } while (!average.compareAndSet(current, next));
+    }
+
+    /**
+     * @return The decayed success rate of the attempts.
+     */
+    public double getSuccessRate() {
+        return Double.longBitsToDouble(successRate.get());
+    }
+
+    /**
+     * @return The decayed latency of the attempts in nanosecond, only tracked if {@code latencyThreshold} is set.
+     */
+    public double getLatencyNanos() {
+        return Double.longBitsToDouble(latency.get());
+    }
+
+    /**
+     * @return The health of the dependency, from 0 for degraded to 1 for healthy.
+     */
+    public double getHealth() {
+        double rate = getSuccessRate();
+        double health;
+        if (rate >= healthySuccessRate) {
+            health = 1.0;
+        } else {
+            health = Math.max(0.0, (rate - minSuccessRate) / (healthySuccessRate - minSuccessRate));
+        }
+        if (latencyThresholdNanos > 0) {
+            double latencyNanos = getLatencyNanos();
+            if (latencyNanos > latencyThresholdNanos) {
+                health *= latencyThresholdNanos / latencyNanos;
+            }
+        }
+        return health;
+    }
+
+    /**
+     * @param maxAttempts The configured max attempts.
+     *
+     * @return The max attempts for the current health, at least 1.
+     */
+    public int maxAttempts(int maxAttempts) {
+        return 1 + (int) Math.round((maxAttempts - 1) * getHealth());
+    }
+
+    /**
+     * @param backoff The backoff given by the configured strategy.
+     *
+     * @return The backoff stretched for the current health.
+     */
+    public long backoff(long backoff) {
+        if (backoff <= 0) {
+            return backoff;
+        }
+        return (long) (backoff * (1 + (maxBackoffFactor - 1) * (1 - getHealth())));
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.bournecui.easyretry.adaptive;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class AdaptiveRetryPolicyBuilder {
+
+    /**
+     * The weight of a new attempt in the decayed averages, default value is 0.05, about the last 20 attempts.
+     */
+    private double decay;
+
+    /**
+     * The configured retry policy is used while the success rate is at least it, default value is 0.9.
+     */
+    private double healthySuccessRate;
+
+    /**
+     * No retry is made while the success rate is at most it, default value is 0.5.
+     */
+    private double minSuccessRate;
+
+    /**
+     * The dependency is also taken as degraded when the average latency is above it, in millisecond, default value
+     * is 0 which means the latency is not considered.
+     */
+    private long latencyThreshold;
+
+    /**
+     * The backoff is stretched up to so many times when the dependency is fully degraded, default value is 4.
+     */
+    private double maxBackoffFactor;
+
+    private AdaptiveRetryPolicyBuilder() {
+        decay = 0.05;
+        healthySuccessRate = 0.9;
+        minSuccessRate = 0.5;
+        latencyThreshold = 0L;
+        maxBackoffFactor = 4.0;
+    }
+
+    public static AdaptiveRetryPolicyBuilder newBuilder() {
+        return new AdaptiveRetryPolicyBuilder();
+    }
+
+    public AdaptiveRetryPolicy build() {
+        if (decay <= 0 || decay > 1) {
+            throw new IllegalStateException("decay must be in (0, 1]: " + decay);
+        }
+        if (minSuccessRate < 0 || minSuccessRate >= healthySuccessRate || healthySuccessRate > 1) {
+            throw new IllegalStateException("Required 0 <= minSuccessRate < healthySuccessRate <= 1: "
+                    + minSuccessRate + ", " + healthySuccessRate);
+        }
+        if (latencyThreshold < 0 || maxBackoffFactor < 1) {
+            throw new IllegalStateException("latencyThreshold can not be negative and maxBackoffFactor must be at"
+                    + " least 1: " + latencyThreshold + ", " + maxBackoffFactor);
+        }
+        return new AdaptiveRetryPolicy(decay, healthySuccessRate, minSuccessRate, latencyThreshold,
+                maxBackoffFactor);
+    }
+
+    public AdaptiveRetryPolicyBuilder decay(double decay) {
+        this.decay = decay;
+        return this;
+    }
+
+    public AdaptiveRetryPolicyBuilder healthySuccessRate(double healthySuccessRate) {
+        this.healthySuccessRate = healthySuccessRate;
+        return this;
+    }
+
+    public AdaptiveRetryPolicyBuilder minSuccessRate(double minSuccessRate) {
+        this.minSuccessRate = minSuccessRate;
+        return this;
+    }
+
+    public AdaptiveRetryPolicyBuilder latencyThreshold(long latencyThreshold) {
+        this.latencyThreshold = latencyThreshold;
+        return this;
+    }
+
+    public AdaptiveRetryPolicyBuilder maxBackoffFactor(double maxBackoffFactor) {
+        this.maxBackoffFactor = maxBackoffFactor;
+        return this;
+    }
+}
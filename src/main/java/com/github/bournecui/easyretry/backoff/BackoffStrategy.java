@@ -0,0 +1,56 @@
+package com.github.bournecui.easyretry.backoff;
+
+/**
+ * To decide how long to wait before the next attempt.
+ * <p>
+ * Implementations are shared by all the jobs of an {@code EasyRetry}, so they must be thread safe. The built-in
+ * ones are stateless, the state of a job is passed in as the previous delay.
+ */
+@FunctionalInterface
+public interface BackoffStrategy {
+
+    /**
+     * To compute the delay before the next attempt.
+     *
+     * @param attempt       The attempt just failed, starting from 1.
+     * @param previousDelay The delay before the failed attempt in millisecond, 0 for the first attempt.
+     *
+     * @return The delay in millisecond, no wait if it is not positive.
+     */
+    long delay(int attempt, long previousDelay);
+
+    /**
+     * Wait the same delay before every attempt.
+     */
+    static BackoffStrategy fixed(long delay) {
+        return new FixedBackoff(delay);
+    }
+
+    /**
+     * Wait {@code base * 2^(attempt - 1)}, but no more than {@code cap}.
+     */
+    static BackoffStrategy exponential(long base, long cap) {
+        return new ExponentialBackoff(base, cap, false);
+    }
+
+    /**
+     * Wait a random delay between 0 and {@code base * 2^(attempt - 1)}, but no more than {@code cap}.
+     */
+    static BackoffStrategy exponentialFullJitter(long base, long cap) {
+        return new ExponentialBackoff(base, cap, true);
+    }
+
+    /**
+     * Wait a random delay between {@code base} and three times the previous delay, but no more than {@code cap}.
+     */
+    static BackoffStrategy decorrelatedJitter(long base, long cap) {
+        return new DecorrelatedJitterBackoff(base, cap);
+    }
+
+    /**
+     * Wait {@code base} times the Fibonacci number of the attempt, but no more than {@code cap}.
+     */
+    static BackoffStrategy fibonacci(long base, long cap) {
+        return new FibonacciBackoff(base, cap);
+    }
+}
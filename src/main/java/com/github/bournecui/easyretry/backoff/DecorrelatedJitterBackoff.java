@@ -0,0 +1,33 @@
+package com.github.bournecui.easyretry.backoff;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Wait a random delay between the base and three times the previous delay, but no more than the cap.
+ * The delay grows like the exponential one, while the callers drift apart from each other.
+ */
+@Getter
+@ToString
+public class DecorrelatedJitterBackoff implements BackoffStrategy {
+
+    private final long base;
+    private final long cap;
+
+    public DecorrelatedJitterBackoff(long base, long cap) {
+        if (base <= 0 || cap < base) {
+            throw new IllegalArgumentException("base must be positive and no more than cap: " + base + ", " + cap);
+        }
+        this.base = base;
+        this.cap = cap;
+    }
+
+    @Override
+    public long delay(int attempt, long previousDelay) {
+        long upper = previousDelay > cap / 3 ? cap : Math.max(previousDelay * 3, base);
+        // The bound is exclusive, a cap of Long.MAX_VALUE must not overflow it.
+        return ThreadLocalRandom.current().nextLong(base, Math.min(upper, Long.MAX_VALUE - 1) + 1);
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.bournecui.easyretry.backoff;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Wait {@code base * 2^(attempt - 1)} before the next attempt, but no more than the cap.
+ * <p>
+ * With full jitter the delay is picked randomly between 0 and that value, so the callers failed at the same
+ * time will not retry in lockstep.
+ */
+@Getter
+@ToString
+public class ExponentialBackoff implements BackoffStrategy {
+
+    private final long base;
+    private final long cap;
+    private final boolean fullJitter;
+
+    public ExponentialBackoff(long base, long cap, boolean fullJitter) {
+        if (base <= 0 || cap < base) {
+            throw new IllegalArgumentException("base must be positive and no more than cap: " + base + ", " + cap);
+        }
+        this.base = base;
+        this.cap = cap;
+        this.fullJitter = fullJitter;
+    }
+
+    @Override
+    public long delay(int attempt, long previousDelay) {
+        int shift = Math.max(attempt - 1, 0);
+        long delay = shift >= Long.SIZE - 1 || base > (cap >> shift) ? cap : base << shift;
+        if (fullJitter) {
+            return ThreadLocalRandom.current().nextLong(delay + 1);
+        }
+        return delay;
+    }
+}
@@ -0,0 +1,39 @@
+package com.github.bournecui.easyretry.backoff;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Wait {@code base} times the Fibonacci number of the attempt (1, 1, 2, 3, 5, ...), but no more than the cap.
+ * It grows slower than the exponential one.
+ */
+@Getter
+@ToString
+public class FibonacciBackoff implements BackoffStrategy {
+
+    private final long base;
+    private final long cap;
+
+    public FibonacciBackoff(long base, long cap) {
+        if (base <= 0 || cap < base) {
+            throw new IllegalArgumentException("base must be positive and no more than cap: " + base + ", " + cap);
+        }
+        this.base = base;
+        this.cap = cap;
+    }
+
+    @Override
+    public long delay(int attempt, long previousDelay) {
+        long previous = 0;
+        long current = base;
+        for (int i = 1; i < attempt; i++) {
+            if (current > cap - previous) {
+                return cap;
+            }
+            long next = previous + current;
+            previous = current;
+            current = next;
+        }
+        return Math.min(current, cap);
+    }
+}
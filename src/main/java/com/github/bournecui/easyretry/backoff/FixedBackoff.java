@@ -0,0 +1,26 @@
+package com.github.bournecui.easyretry.backoff;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Wait the same delay before every attempt.
+ */
+@Getter
+@ToString
+public class FixedBackoff implements BackoffStrategy {
+
+    private final long delay;
+
+    public FixedBackoff(long delay) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("delay must not be negative: " + delay);
+        }
+        this.delay = delay;
+    }
+
+    @Override
+    public long delay(int attempt, long previousDelay) {
+        return delay;
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.bournecui.easyretry.backoff;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * Reads the delay the dependency asks for before the next attempt, such as the {@code Retry-After} header of an
+ * HTTP 429 or 503, or the retry delay of a throttled gRPC call. The delay found replaces the backoff of the
+ * {@link BackoffStrategy} for that retry.
+ * <p>
+ * Implementations are shared by all the jobs of an {@code EasyRetry}, so they must be thread safe.
+ */
+@FunctionalInterface
+public interface RetryAfterExtractor {
+
+    /**
+     * @param failure The exception thrown by the attempt, null if the attempt returned a result.
+     * @param result  The result rejected by the {@code ResultPredicate}, null if the attempt threw.
+     *
+     * @return The delay in millisecond, negative if there's no hint, then the backoff is used.
+     */
+    long retryAfter(Throwable failure, Object result);
+
+    /**
+     * Read the delay from the exceptions of the given type, the causes are looked into as well.
+     */
+    static <E extends Throwable> RetryAfterExtractor ofException(Class<E> type, ToLongFunction<? super E> delay) {
+        return (failure, result) -> {
+            for (Throwable e = failure; e != null; e = e.getCause() == e ? null : e.getCause()) {
+                if (type.isInstance(e)) {
+                    return delay.applyAsLong(type.cast(e));
+                }
+            }
+            return -1L;
+        };
+    }
+
+    /**
+     * Read the delay from the rejected results of the given type.
+     */
+    static <T> RetryAfterExtractor ofResult(Class<T> type, ToLongFunction<? super T> delay) {
+        return (failure, result) -> type.isInstance(result) ? delay.applyAsLong(type.cast(result)) : -1L;
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.bournecui.easyretry.batch;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The outcome of the keys of a batch call, it is both returned by an {@link EasyBatchCallable} and by
+ * {@code EasyRetry.callBatch}. It is not thread safe.
+ */
+public class BatchResult<K, V> {
+
+    private final Map<K, V> succeeded = new LinkedHashMap<>();
+    private final Map<K, Throwable> failed = new LinkedHashMap<>();
+    private final Map<K, V> rejected = new LinkedHashMap<>();
+
+    public BatchResult<K, V> succeed(K key, V value) {
+        failed.remove(key);
+        rejected.remove(key);
+        succeeded.put(key, value);
+        return this;
+    }
+
+    public BatchResult<K, V> fail(K key, Throwable failure) {
+        succeeded.remove(key);
+        rejected.remove(key);
+        failed.put(key, failure);
+        return this;
+    }
+
+    /**
+     * The value of the key was rejected by the {@code ResultPredicate}.
+     */
+    public BatchResult<K, V> reject(K key, V value) {
+        succeeded.remove(key);
+        failed.remove(key);
+        rejected.put(key, value);
+        return this;
+    }
+
+    /**
+     * @return The values of the keys succeeded, only the ones accepted by the {@code ResultPredicate} if any.
+     */
+    public Map<K, V> getSucceeded() {
+        return Collections.unmodifiableMap(succeeded);
+    }
+
+    /**
+     * @return The exceptions of the keys failed.
+     */
+    public Map<K, Throwable> getFailed() {
+        return Collections.unmodifiableMap(failed);
+    }
+
+    /**
+     * @return The values of the keys rejected by the {@code ResultPredicate} in their last attempt, the same as
+     * {@code EasyRetry.call} returns it.
+     */
+    public Map<K, V> getRejected() {
+        return Collections.unmodifiableMap(rejected);
+    }
+
+    public boolean isSucceeded(K key) {
+        return succeeded.containsKey(key);
+    }
+
+    public boolean isAllSucceeded() {
+        return failed.isEmpty() && rejected.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult(succeeded=" + succeeded.keySet() + ", failed=" + failed.keySet() + ", rejected="
+                + rejected.keySet() + ")";
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.bournecui.easyretry.batch;
+
+import java.util.List;
+
+import com.github.bournecui.easyretry.EasyJob;
+
+/**
+ * A bulk call on many keys, e.g. a multi-get or a batch write, which can succeed for some keys and fail for the
+ * others.
+ */
+@FunctionalInterface
+public interface EasyBatchCallable<K, V> extends EasyJob {
+
+    /**
+     * @param keys The keys to call, on retry only the failed ones.
+     *
+     * @return The outcome of every key. A key which is neither succeeded nor failed in it is taken as failed.
+     * If the call throws an exception all the keys fail with it.
+     */
+    BatchResult<K, V> call(List<K> keys);
+}
@@ -0,0 +1,12 @@
+package com.github.bournecui.easyretry.batch;
+
+import com.github.bournecui.easyretry.EasyRetryException;
+
+/**
+ * The key failed because the batch call returned no outcome for it.
+ */
+public class MissingResultException extends EasyRetryException {
+    public MissingResultException(String message) {
+        super(message);
+    }
+}
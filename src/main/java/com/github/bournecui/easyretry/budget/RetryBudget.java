@@ -0,0 +1,37 @@
+package com.github.bournecui.easyretry.budget;
+
+/**
+ * A budget of retries shared by all the jobs of an {@code EasyRetry}.
+ * <p>
+ * Every first attempt deposits into the budget and every retry withdraws from it. When the budget is used up
+ * retries are given up, so the load sent to a failing dependency is capped no matter how many calls fail.
+ */
+public interface RetryBudget {
+
+    /**
+     * Called before the first attempt of every job.
+     */
+    void deposit();
+
+    /**
+     * Called before every retry.
+     *
+     * @return If the retry is allowed, if not it will be given up.
+     */
+    boolean tryWithdraw();
+
+    /**
+     * @return How many first attempts have deposited.
+     */
+    long getDeposits();
+
+    /**
+     * @return How many retries have been allowed.
+     */
+    long getWithdrawals();
+
+    /**
+     * @return How many retries have been rejected.
+     */
+    long getRejections();
+}
@@ -0,0 +1,350 @@
+package com.github.bournecui.easyretry.budget;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import com.github.bournecui.easyretry.EasyRetryException;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A token bucket like {@link TokenBucketRetryBudget} whose balance is kept in a small memory-mapped file, so all the
+ * processes of a host which open the same file share one budget, e.g. several JVMs calling the same dependency.
+ * No network nor lock is involved: the balance is updated by a CAS on the mapped memory, as cheap as an
+ * {@code AtomicLong}. If the mapped memory can not be reached by {@code Unsafe}, every update takes a file lock
+ * instead, which is much slower, and which does not exclude the CAS of the other processes. {@code Unsafe} is
+ * reached reflectively, through constant method handles which the JIT inlines as direct calls.
+ * <p>
+ * Every process adds and caps by its own {@code retryRatio} and {@code maxTokens}, the file only holds the balance.
+ * The first process which opens the file fills the bucket. The deposits, withdrawals and rejections are counted by
+ * budget.
+ * <p>
+ * A file is mapped once by JVM, the budgets opened on it share the mapping, so a budget can be opened on every build
+ * of an {@code EasyRetry} without mapping the file again.
+ */
+@Slf4j
+public class SharedRetryBudget implements RetryBudget {
+
+    private static final long SCALE = 1000L;
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9._-]+");
+
+    /**
+     * The layout of the file: the magic number once it is initialized, the balance on a cache line of its own.
+     */
+    private static final int MAGIC = 0x45524255;
+    private static final int BALANCE = 64;
+    private static final int FILE_SIZE = 128;
+
+    /**
+     * The methods of {@code sun.misc.Unsafe} bound to its instance, null if it is not available.
+     */
+    private static final MethodHandle GET_LONG;
+    private static final MethodHandle GET_LONG_VOLATILE;
+    private static final MethodHandle COMPARE_AND_SWAP_LONG;
+    /**
+     * The offset of the address field of a direct buffer.
+     */
+    private static final long ADDRESS;
+
+    static {
+        MethodHandle getLong = null;
+        MethodHandle getLongVolatile = null;
+        MethodHandle compareAndSwapLong = null;
+        long address = -1L;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodType getType = MethodType.methodType(long.class, Object.class, long.class);
+            address = (long) lookup.findVirtual(unsafeClass, "objectFieldOffset",
+                    MethodType.methodType(long.class, Field.class)).bindTo(unsafe)
+                    .invoke(Buffer.class.getDeclaredField("address"));
+            getLong = lookup.findVirtual(unsafeClass, "getLong", getType).bindTo(unsafe);
+            getLongVolatile = lookup.findVirtual(unsafeClass, "getLongVolatile", getType).bindTo(unsafe);
+            compareAndSwapLong = lookup.findVirtual(unsafeClass, "compareAndSwapLong",
+                    MethodType.methodType(boolean.class, Object.class, long.class, long.class, long.class))
+                    .bindTo(unsafe);
+        } catch (Throwable e) {
+            log.warn("Unsafe is not available, the shared retry budgets fall back to file locks: {}", e.toString());
+            getLong = null;
+        }
+        GET_LONG = getLong;
+        GET_LONG_VOLATILE = getLongVolatile;
+        COMPARE_AND_SWAP_LONG = compareAndSwapLong;
+        ADDRESS = address;
+    }
+
+    /**
+     * The files mapped by the canonical path, they stay mapped for the life of the JVM.
+     */
+    private static final ConcurrentMap<String, Mapping> MAPPINGS = new ConcurrentHashMap<>();
+
+    @Getter
+    private final File file;
+    @Getter
+    private final double retryRatio;
+    @Getter
+    private final int maxTokens;
+
+    private final long depositAmount;
+    private final long capacity;
+
+    private final Mapping mapping;
+    private final MappedByteBuffer buffer;
+    /**
+     * The address of the balance, 0 if it falls back to file locks.
+     */
+    private final long balanceAddress;
+
+    private final LongAdder deposits = new LongAdder();
+    private final LongAdder withdrawals = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    private SharedRetryBudget(File file, double retryRatio, int maxTokens, Mapping mapping) {
+        this.file = file;
+        this.retryRatio = retryRatio;
+        this.maxTokens = maxTokens;
+        this.depositAmount = Math.round(retryRatio * SCALE);
+        this.capacity = maxTokens * SCALE;
+        this.mapping = mapping;
+        this.buffer = mapping.buffer;
+        this.balanceAddress = mapping.balanceAddress;
+    }
+
+    /**
+     * A file mapped, the budgets which fall back to file locks lock on it as well, a file lock is held by the JVM.
+     */
+    private static final class Mapping {
+
+        private final MappedByteBuffer buffer;
+        private final long balanceAddress;
+        /**
+         * Kept open only to take the file locks, null if the balance is updated by CAS.
+         */
+        private final FileChannel channel;
+
+        /**
+         * @param capacity The balance of the bucket filled, if the file is not initialized yet.
+         */
+        private Mapping(File file, long capacity) throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            FileChannel fileChannel = raf.getChannel();
+            try {
+                FileLock lock = fileChannel.lock();
+                try {
+                    if (raf.length() < FILE_SIZE) {
+                        raf.setLength(FILE_SIZE);
+                    }
+                    buffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+                    // The same order as Unsafe reads it.
+                    buffer.order(ByteOrder.nativeOrder());
+                    if (buffer.getInt(0) != MAGIC) {
+                        buffer.putLong(BALANCE, capacity);
+                        buffer.putInt(0, MAGIC);
+                        buffer.force();
+                    }
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException | RuntimeException e) {
+                raf.close();
+                throw e;
+            }
+
+            if (GET_LONG != null) {
+                balanceAddress = getLong(buffer, ADDRESS) + BALANCE;
+                channel = null;
+                raf.close();
+            } else {
+                balanceAddress = 0L;
+                channel = fileChannel;
+            }
+        }
+    }
+
+    /**
+     * Open the budget shared under the name, in a file of the temporary directory.
+     *
+     * @param name       The name of the budget, only letters, digits, '.', '_' and '-'.
+     * @param retryRatio The ratio of retries to first attempts, e.g. 0.1 allows one retry every ten calls.
+     * @param maxTokens  The max number of retries which can be saved for a burst.
+     */
+    public static SharedRetryBudget open(String name, double retryRatio, int maxTokens) {
+        if (name == null || !NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid name of a shared retry budget: " + name);
+        }
+        return open(new File(System.getProperty("java.io.tmpdir"), "easy-retry-budget-" + name), retryRatio,
+                maxTokens);
+    }
+
+    /**
+     * Open the budget shared in the file, it is created if absent.
+     *
+     * @see #open(String, double, int)
+     */
+    public static SharedRetryBudget open(File file, double retryRatio, int maxTokens) {
+        if (retryRatio < 0 || maxTokens < 0) {
+            throw new IllegalArgumentException("retryRatio and maxTokens must not be negative: "
+                    + retryRatio + ", " + maxTokens);
+        }
+        try {
+            String path = file.getCanonicalPath();
+            Mapping mapping = MAPPINGS.get(path);
+            if (mapping == null) {
+                synchronized (MAPPINGS) {
+                    mapping = MAPPINGS.get(path);
+                    if (mapping == null) {
+                        mapping = new Mapping(file, maxTokens * SCALE);
+                        MAPPINGS.put(path, mapping);
+                    }
+                }
+            }
+            return new SharedRetryBudget(file, retryRatio, maxTokens, mapping);
+        } catch (IOException e) {
+            throw new EasyRetryException("Failed to open the shared retry budget " + file, e);
+        }
+    }
+
+    @Override
+    public void deposit() {
+        deposits.increment();
+        if (balanceAddress == 0L) {
+            update(depositAmount);
+            return;
+        }
+        long current;
+        long next;
+        do {
+            current = getLongVolatile(balanceAddress);
+            if (current >= capacity) {
+                return;
+            }
+            next = Math.min(current + depositAmount, capacity);
+        } while (!compareAndSwapLong(balanceAddress, current, next));
+    }
+
+    @Override
+    public boolean tryWithdraw() {
+        boolean allowed;
+        if (balanceAddress == 0L) {
+            allowed = update(-SCALE);
+        } else {
+            long current;
+            do {
+                current = getLongVolatile(balanceAddress);
+                if (current < SCALE) {
+                    break;
+                }
+            } while (!compareAndSwapLong(balanceAddress, current, current - SCALE));
+            allowed = current >= SCALE;
+        }
+        if (allowed) {
+            withdrawals.increment();
+        } else {
+            rejections.increment();
+        }
+        return allowed;
+    }
+
+    /**
+     * Update the balance under the file lock, a deposit is capped by the capacity, a withdrawal needs a whole token.
+     *
+     * @return If the balance is updated.
+     */
+    private boolean update(long amount) {
+        synchronized (mapping) {
+            try {
+                FileLock lock = mapping.channel.lock(BALANCE, Long.BYTES, false);
+                try {
+                    long current = buffer.getLong(BALANCE);
+                    if (amount < 0 ? current < -amount : current >= capacity) {
+                        return false;
+                    }
+                    buffer.putLong(BALANCE, Math.min(current + amount, capacity));
+                    return true;
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                throw new EasyRetryException("Failed to lock the shared retry budget " + file, e);
+            }
+        }
+    }
+
+    /**
+     * @return The number of retries allowed right now, on the host.
+     */
+    public long getAvailableTokens() {
+        return (balanceAddress == 0L ? buffer.getLong(BALANCE) : getLongVolatile(balanceAddress)) / SCALE;
+    }
+
+    /**
+     * @return If the balance is updated by CAS, otherwise under a file lock.
+     */
+    public boolean isLockFree() {
+        return balanceAddress != 0L;
+    }
+
+    private static long getLong(Object object, long offset) {
+        try {
+            return (long) GET_LONG.invokeExact(object, offset);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long getLongVolatile(long address) {
+        try {
+            return (long) GET_LONG_VOLATILE.invokeExact((Object) null, address);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean compareAndSwapLong(long address, long expected, long value) {
+        try {
+            return (boolean) COMPARE_AND_SWAP_LONG.invokeExact((Object) null, address, expected, value);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public long getDeposits() {
+        return deposits.sum();
+    }
+
+    @Override
+    public long getWithdrawals() {
+        return withdrawals.sum();
+    }
+
+    @Override
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "SharedRetryBudget(file=" + file + ", retryRatio=" + retryRatio + ", maxTokens=" + maxTokens
+                + ", availableTokens=" + getAvailableTokens() + ")";
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.bournecui.easyretry.budget;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+
+/**
+ * A lock-free token bucket. Every first attempt adds {@code retryRatio} tokens, every retry takes one token,
+ * so the retries are no more than {@code retryRatio} of the first attempts plus the tokens saved in the bucket.
+ * <p>
+ * The bucket starts full and holds at most {@code maxTokens} tokens, thus a short burst of failures can still be
+ * retried after a quiet period.
+ */
+public class TokenBucketRetryBudget implements RetryBudget {
+
+    /**
+     * Tokens are counted in thousandths, so a ratio like 0.1 needs no floating point on the hot path.
+     */
+    private static final long SCALE = 1000L;
+
+    @Getter
+    private final double retryRatio;
+
+    @Getter
+    private final int maxTokens;
+
+    private final long depositAmount;
+    private final long capacity;
+    private final AtomicLong balance;
+
+    private final LongAdder deposits = new LongAdder();
+    private final LongAdder withdrawals = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * @param retryRatio The ratio of retries to first attempts, e.g. 0.1 allows one retry every ten calls.
+     * @param maxTokens  The max number of retries which can be saved for a burst.
+     */
+    public TokenBucketRetryBudget(double retryRatio, int maxTokens) {
+        if (retryRatio < 0 || maxTokens < 0) {
+            throw new IllegalArgumentException("retryRatio and maxTokens must not be negative: "
+                    + retryRatio + ", " + maxTokens);
+        }
+        this.retryRatio = retryRatio;
+        this.maxTokens = maxTokens;
+        this.depositAmount = Math.round(retryRatio * SCALE);
+        this.capacity = maxTokens * SCALE;
+        this.balance = new AtomicLong(capacity);
+    }
+
+    @Override
+    public void deposit() {
+        deposits.increment();
+        long current;
+        long next;
+        do {
+            current = balance.get();
+            if (current >= capacity) {
+                return;
+            }
+            next = Math.min(current + depositAmount, capacity);
+        } while (!balance.compareAndSet(current, next));
+    }
+
+    @Override
+    public boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < SCALE) {
+                rejections.increment();
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - SCALE));
+        withdrawals.increment();
+        return true;
+    }
+
+    /**
+     * @return The number of retries allowed right now.
+     */
+    public long getAvailableTokens() {
+        return balance.get() / SCALE;
+    }
+
+    @Override
+    public long getDeposits() {
+        return deposits.sum();
+    }
+
+    @Override
+    public long getWithdrawals() {
+        return withdrawals.sum();
+    }
+
+    @Override
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBucketRetryBudget(retryRatio=" + retryRatio + ", maxTokens=" + maxTokens
+                + ", availableTokens=" + getAvailableTokens() + ")";
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.bournecui.easyretry.bulkhead;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+
+/**
+ * Caps the attempts running at once. A permit is taken for every attempt and given back when it finishes, so
+ * the retries compete for the same permits as the first attempts and a job holds no permit during its backoff.
+ * <p>
+ * The permits are a fair {@link Semaphore}: when they are used up, at most {@code maxWaitingCalls} attempts wait
+ * for one in arrival order, up to {@code maxWaitTime}, and the others are rejected at once. Only the blocking
+ * calls wait, the async ones never block their caller and are rejected at once.
+ */
+public class Bulkhead {
+
+    @Getter
+    private final int maxConcurrentCalls;
+    @Getter
+    private final int maxWaitingCalls;
+    @Getter
+    private final long maxWaitTime;
+
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * A bulkhead which rejects the attempts at once when the permits are used up.
+     */
+    public Bulkhead(int maxConcurrentCalls) {
+        this(maxConcurrentCalls, 0, 0L);
+    }
+
+    /**
+     * @param maxConcurrentCalls The max number of attempts running at once.
+     * @param maxWaitingCalls    The max number of attempts waiting for a permit.
+     * @param maxWaitTime        How long an attempt waits for a permit, in millisecond.
+     */
+    public Bulkhead(int maxConcurrentCalls, int maxWaitingCalls, long maxWaitTime) {
+        if (maxConcurrentCalls <= 0 || maxWaitingCalls < 0 || maxWaitTime < 0) {
+            throw new IllegalArgumentException("maxConcurrentCalls must be positive, maxWaitingCalls and maxWaitTime"
+                    + " must not be negative: " + maxConcurrentCalls + ", " + maxWaitingCalls + ", " + maxWaitTime);
+        }
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxWaitingCalls = maxWaitingCalls;
+        this.maxWaitTime = maxWaitTime;
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+    }
+
+    /**
+     * Take a permit without waiting. It does not jump ahead of the attempts waiting.
+     *
+     * @return If a permit is taken.
+     */
+    public boolean tryAcquire() {
+        if (!permits.hasQueuedThreads() && permits.tryAcquire()) {
+            return true;
+        }
+        rejections.increment();
+        return false;
+    }
+
+    /**
+     * Take a permit, wait for one if the wait queue is not full.
+     *
+     * @return If a permit is taken.
+     */
+    public boolean acquire() throws InterruptedException {
+        if (maxWaitingCalls == 0 || maxWaitTime == 0) {
+            return tryAcquire();
+        }
+        if (waiting.incrementAndGet() <= maxWaitingCalls) {
+            try {
+                if (permits.tryAcquire(maxWaitTime, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            } finally {
+                waiting.decrementAndGet();
+            }
+        } else {
+            waiting.decrementAndGet();
+        }
+        rejections.increment();
+        return false;
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getWaitingCalls() {
+        return waiting.get();
+    }
+
+    /**
+     * @return How many attempts were rejected for no permit.
+     */
+    public long getRejections() {
+        return rejections.sum();
+    }
+}
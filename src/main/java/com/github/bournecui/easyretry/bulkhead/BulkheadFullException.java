@@ -0,0 +1,15 @@
+package com.github.bournecui.easyretry.bulkhead;
+
+import com.github.bournecui.easyretry.EasyRetryException;
+
+/**
+ * Thrown when the job is not attempted at all because the bulkhead has no permit left.
+ */
+public class BulkheadFullException extends EasyRetryException {
+    public BulkheadFullException() {
+    }
+
+    public BulkheadFullException(String message) {
+        super(message);
+    }
+}
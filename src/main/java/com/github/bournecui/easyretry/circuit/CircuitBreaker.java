@@ -0,0 +1,205 @@
+package com.github.bournecui.easyretry.circuit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.bournecui.easyretry.clock.Clock;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A circuit breaker which tracks the failure rate of the recent attempts.
+ * <ul>
+ * <li>CLOSED: all attempts are allowed. It opens when the failure rate of the sliding window reaches the threshold.
+ * <li>OPEN: no attempt is allowed. After the open duration it turns to half-open.
+ * <li>HALF_OPEN: only a few trial attempts are allowed. It closes if all of them succeed, or opens again on any
+ * failure.
+ * </ul>
+ * The sliding window is a lock-free ring buffer of the outcomes of the latest attempts, with the counts
+ * maintained along with it, so recording an outcome never takes a lock.
+ * <p>
+ * Use {@link CircuitBreakerBuilder} to build an instance, it can be shared by several {@code EasyRetry}s which
+ * call the same dependency.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final int EMPTY = 0;
+    private static final int SUCCESS = 1;
+    private static final int FAILURE = 2;
+
+    @Getter
+    private final int windowSize;
+    @Getter
+    private final int minimumCalls;
+    @Getter
+    private final double failureRateThreshold;
+    @Getter
+    private final long openDuration;
+    @Getter
+    private final int halfOpenTrials;
+
+    private final long openDurationNanos;
+    private final Clock clock;
+
+    private final AtomicIntegerArray outcomes;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private final AtomicInteger state = new AtomicInteger(State.CLOSED.ordinal());
+    private final AtomicInteger trialPermits = new AtomicInteger();
+    private final AtomicInteger trialSuccesses = new AtomicInteger();
+    private volatile long stateChangedAt;
+
+    CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long openDuration,
+                   int halfOpenTrials, Clock clock) {
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+        this.halfOpenTrials = halfOpenTrials;
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDuration);
+        this.clock = clock;
+        this.outcomes = new AtomicIntegerArray(windowSize);
+    }
+
+    /**
+     * To acquire the permission of an attempt.
+     *
+     * @return If the attempt is allowed.
+     */
+    public boolean tryAcquire() {
+        switch (getState()) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.nanoTime() - stateChangedAt < openDurationNanos) {
+                    return false;
+                }
+                if (transit(State.OPEN, State.HALF_OPEN)) {
+                    trialSuccesses.set(0);
+                    trialPermits.set(halfOpenTrials);
+                }
+                return tryAcquireTrial();
+            default:
+                return tryAcquireTrial();
+        }
+    }
+
+    /**
+     * To give back the permission of an attempt which never starts, so it reports no outcome. The trial it took
+     * from a half-open circuit is allowed again.
+     */
+    public void release() {
+        int permits;
+        do {
+            permits = trialPermits.get();
+            if (getState() != State.HALF_OPEN || permits >= halfOpenTrials) {
+                return;
+            }
+        } while (!trialPermits.compareAndSet(permits, permits + 1));
+    }
+
+    public void onSuccess() {
+        State current = getState();
+        if (current == State.HALF_OPEN) {
+            if (trialSuccesses.incrementAndGet() >= halfOpenTrials && transit(State.HALF_OPEN, State.CLOSED)) {
+                clearWindow();
+            }
+        } else if (current == State.CLOSED) {
+            record(SUCCESS);
+        }
+    }
+
+    public void onFailure() {
+        State current = getState();
+        if (current == State.HALF_OPEN) {
+            transit(State.HALF_OPEN, State.OPEN);
+        } else if (current == State.CLOSED) {
+            record(FAILURE);
+            int total = calls.get();
+            if (total >= minimumCalls && failures.get() >= failureRateThreshold * total) {
+                transit(State.CLOSED, State.OPEN);
+            }
+        }
+    }
+
+    public State getState() {
+        return State.values()[state.get()];
+    }
+
+    /**
+     * @return The failure rate of the sliding window, 0 if there's no call recorded.
+     */
+    public double getFailureRate() {
+        int total = calls.get();
+        return total == 0 ? 0 : (double) failures.get() / total;
+    }
+
+    private boolean tryAcquireTrial() {
+        int permits;
+        do {
+            permits = trialPermits.get();
+            if (permits <= 0) {
+                // The trials may never report back, e.g. a retry is given up after the permit is acquired.
+                // Start a new round of trials instead of being half-open forever.
+                if (clock.nanoTime() - stateChangedAt >= openDurationNanos && getState() == State.HALF_OPEN) {
+                    stateChangedAt = clock.nanoTime();
+                    trialPermits.set(halfOpenTrials);
+                }
+                return false;
+            }
+        } while (!trialPermits.compareAndSet(permits, permits - 1));
+        return true;
+    }
+
+    private boolean transit(State from, State to) {
+        if (state.compareAndSet(from.ordinal(), to.ordinal())) {
+            stateChangedAt = clock.nanoTime();
+            log.info("Circuit breaker turns from {} to {}, failure rate: {}", from, to, getFailureRate());
+            return true;
+        }
+        return false;
+    }
+
+    private void record(int outcome) {
+        int index = (int) (cursor.getAndIncrement() % windowSize);
+        replace(index, outcome);
+    }
+
+    private void clearWindow() {
+        for (int i = 0; i < windowSize; i++) {
+            replace(i, EMPTY);
+        }
+    }
+
+    private void replace(int index, int outcome) {
+        int previous = outcomes.getAndSet(index, outcome);
+        if (previous == EMPTY && outcome != EMPTY) {
+            calls.incrementAndGet();
+        } else if (previous != EMPTY && outcome == EMPTY) {
+            calls.decrementAndGet();
+        }
+        if (previous == FAILURE) {
+            failures.decrementAndGet();
+        }
+        if (outcome == FAILURE) {
+            failures.incrementAndGet();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker(state=" + getState() + ", failureRate=" + getFailureRate() + ", windowSize="
+                + windowSize + ", failureRateThreshold=" + failureRateThreshold + ", openDuration="
+                + openDuration + ")";
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.bournecui.easyretry.circuit;
+
+import com.github.bournecui.easyretry.clock.Clock;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class CircuitBreakerBuilder {
+
+    /**
+     * How many latest attempts are tracked, default value is 100.
+     */
+    private int windowSize;
+
+    /**
+     * The circuit will not open before so many attempts are tracked, default value is 20.
+     */
+    private int minimumCalls;
+
+    /**
+     * The circuit opens when the failure rate reaches it, default value is 0.5.
+     */
+    private double failureRateThreshold;
+
+    /**
+     * How long the circuit keeps open before trial attempts are allowed, in millisecond, default value is 10000.
+     */
+    private long openDuration;
+
+    /**
+     * How many trial attempts are allowed when the circuit is half-open, default value is 3.
+     */
+    private int halfOpenTrials;
+
+    /**
+     * The time source of the open duration, default is {@link Clock#SYSTEM}.
+     */
+    private Clock clock;
+
+    private CircuitBreakerBuilder() {
+        windowSize = 100;
+        minimumCalls = 20;
+        failureRateThreshold = 0.5;
+        openDuration = 10000L;
+        halfOpenTrials = 3;
+        clock = Clock.SYSTEM;
+    }
+
+    public static CircuitBreakerBuilder newBuilder() {
+        return new CircuitBreakerBuilder();
+    }
+
+    public CircuitBreaker build() {
+        if (windowSize <= 0 || halfOpenTrials <= 0) {
+            throw new IllegalStateException("windowSize and halfOpenTrials must be positive!");
+        }
+        if (clock == null) {
+            throw new IllegalStateException("clock is required!");
+        }
+        if (openDuration <= 0) {
+            throw new IllegalStateException("openDuration must be positive: " + openDuration);
+        }
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalStateException("failureRateThreshold must be in (0, 1]: " + failureRateThreshold);
+        }
+        return new CircuitBreaker(windowSize, Math.max(1, Math.min(minimumCalls, windowSize)),
+                failureRateThreshold, openDuration, halfOpenTrials, clock);
+    }
+
+    public CircuitBreakerBuilder windowSize(int windowSize) {
+        this.windowSize = windowSize;
+        return this;
+    }
+
+    public CircuitBreakerBuilder minimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+        return this;
+    }
+
+    public CircuitBreakerBuilder failureRateThreshold(double failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+        return this;
+    }
+
+    public CircuitBreakerBuilder openDuration(long openDuration) {
+        this.openDuration = openDuration;
+        return this;
+    }
+
+    public CircuitBreakerBuilder halfOpenTrials(int halfOpenTrials) {
+        this.halfOpenTrials = halfOpenTrials;
+        return this;
+    }
+
+    public CircuitBreakerBuilder clock(Clock clock) {
+        this.clock = clock;
+        return this;
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.bournecui.easyretry.circuit;
+
+import com.github.bournecui.easyretry.EasyRetryException;
+
+/**
+ * Thrown when the job is not attempted at all because the circuit breaker is open.
+ */
+public class CircuitBreakerOpenException extends EasyRetryException {
+    public CircuitBreakerOpenException() {
+    }
+
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.bournecui.easyretry.clock;
+
+/**
+ * The time source of the max wait time, the latency given to the listener, the open duration of the circuit
+ * breaker and the rate limit of the failure logging. A virtual clock along with a {@link Sleeper} lets the retry run
+ * on simulated time.
+ */
+@FunctionalInterface
+public interface Clock {
+
+    /**
+     * The clock of {@link System#nanoTime()}.
+     */
+    Clock SYSTEM = System::nanoTime;
+
+    /**
+     * @return The current time in nanosecond, only meaningful as the difference between two readings.
+     */
+    long nanoTime();
+}
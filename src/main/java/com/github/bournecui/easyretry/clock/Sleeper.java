@@ -0,0 +1,18 @@
+package com.github.bournecui.easyretry.clock;
+
+/**
+ * Waits out the backoff of the blocking retries. The async retries wait on the {@code RetryTimer} instead.
+ */
+@FunctionalInterface
+public interface Sleeper {
+
+    /**
+     * The sleeper of {@link Thread#sleep(long)}.
+     */
+    Sleeper THREAD = Thread::sleep;
+
+    /**
+     * @param millis The time to wait in millisecond, positive.
+     */
+    void sleep(long millis) throws InterruptedException;
+}
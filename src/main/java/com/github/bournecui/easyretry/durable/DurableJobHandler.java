@@ -0,0 +1,13 @@
+package com.github.bournecui.easyretry.durable;
+
+/**
+ * Runs a job saved in a {@link DurableRetryQueue} under a job key, from its payload.
+ */
+@FunctionalInterface
+public interface DurableJobHandler {
+
+    /**
+     * @param payload The payload saved with the job.
+     */
+    void handle(byte[] payload);
+}
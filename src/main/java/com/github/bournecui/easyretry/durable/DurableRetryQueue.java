@@ -0,0 +1,296 @@
+package com.github.bournecui.easyretry.durable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.github.bournecui.easyretry.EasyRetryException;
+import com.github.bournecui.easyretry.backoff.BackoffStrategy;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the jobs which ran out of attempts in a local append-only log, and replays them in the background with
+ * long backoffs until they succeed. A job is saved either as a job key plus a payload, run by the
+ * {@link DurableJobHandler} registered under the key, or as a whole {@link DurableRunnable}.
+ * <p>
+ * Saving a job only copies it into a memory-mapped segment, the segment is flushed to the disk every
+ * {@code flushInterval} for all the jobs saved meanwhile, so the failure path does not wait for an fsync. A job
+ * saved within the last {@code flushInterval} can be lost if the machine crashes, call {@link #flush()} if it must
+ * not be. The jobs saved survive a restart of the process, they are replayed once their handler is registered
+ * again. A replayed job may run more than once if the process dies right after it, so the jobs must be idempotent.
+ * <p>
+ * A segment is deleted once all the jobs in it and in the older ones are done. Use
+ * {@link DurableRetryQueueBuilder} to open a queue, one directory can only be opened by one queue.
+ */
+@Slf4j
+public class DurableRetryQueue implements Closeable {
+
+    /**
+     * The job key of the {@link DurableRunnable}s.
+     */
+    public static final String SERIALIZED_JOB_KEY = "easy-retry.serialized";
+
+    @Getter
+    private final File directory;
+    @Getter
+    private final long flushInterval;
+    @Getter
+    private final long replayInterval;
+    @Getter
+    private final BackoffStrategy replayBackoff;
+    @Getter
+    private final int maxReplays;
+
+    private final SegmentLog segmentLog;
+    private final Map<String, DurableJobHandler> handlers = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor executor;
+
+    /**
+     * The jobs not done yet, and how many of them are in each segment. Guarded by this.
+     */
+    private final Map<Long, Job> jobs = new LinkedHashMap<>();
+    private final Map<Long, Integer> liveJobs = new HashMap<>();
+    private long nextId;
+    private volatile boolean closed;
+
+    DurableRetryQueue(File directory, int segmentSize, long flushInterval, long replayInterval,
+                      BackoffStrategy replayBackoff, int maxReplays) throws IOException {
+        this.directory = directory;
+        this.flushInterval = flushInterval;
+        this.replayInterval = replayInterval;
+        this.replayBackoff = replayBackoff;
+        this.maxReplays = maxReplays;
+        this.segmentLog = new SegmentLog(directory, segmentSize, new SegmentLog.Visitor() {
+            @Override
+            public void onJob(long segment, long id, String jobKey, byte[] payload, int replays,
+                              long nextReplayAt) {
+                putJob(new Job(id, jobKey, payload, replays, nextReplayAt, segment));
+                nextId = Math.max(nextId, id + 1);
+            }
+
+            @Override
+            public void onAck(long segment, long id) {
+                removeJob(id);
+            }
+        });
+        if (!jobs.isEmpty()) {
+            log.info("{} jobs are recovered from {}", jobs.size(), directory);
+        }
+
+        handlers.put(SERIALIZED_JOB_KEY, DurableRetryQueue::runSerialized);
+        this.executor = new ScheduledThreadPoolExecutor(2, runnable -> {
+            Thread thread = new Thread(runnable, "easy-retry-durable-" + directory.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Two threads, so a slow replay never holds the flushes back.
+        executor.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::replay, replayInterval, replayInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Register the handler of the jobs saved under the key, the jobs saved before are replayed from then on.
+     */
+    public void register(String jobKey, DurableJobHandler handler) {
+        if (SERIALIZED_JOB_KEY.equals(jobKey)) {
+            throw new IllegalArgumentException(SERIALIZED_JOB_KEY + " is reserved!");
+        }
+        handlers.put(jobKey, handler);
+    }
+
+    public DurableJobHandler getHandler(String jobKey) {
+        return handlers.get(jobKey);
+    }
+
+    /**
+     * Save a job to be replayed later.
+     *
+     * @return The id of the job.
+     */
+    public long enqueue(String jobKey, byte[] payload) {
+        long nextReplayAt = System.currentTimeMillis() + replayBackoff.delay(1, 0L);
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("The queue is closed: " + directory);
+            }
+            long id = nextId++;
+            putJob(new Job(id, jobKey, payload, 0, nextReplayAt, append(id, jobKey, payload, 0, nextReplayAt)));
+            return id;
+        }
+    }
+
+    public long enqueue(DurableRunnable job) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(job);
+        } catch (IOException e) {
+            throw new EasyRetryException("Failed to serialize the job " + job, e);
+        }
+        return enqueue(SERIALIZED_JOB_KEY, bytes.toByteArray());
+    }
+
+    /**
+     * Flush the jobs saved to the disk now, instead of waiting for the next flush.
+     */
+    public synchronized void flush() {
+        if (!closed) {
+            segmentLog.force();
+        }
+    }
+
+    /**
+     * @return How many jobs are not done yet.
+     */
+    public synchronized int getPendingJobs() {
+        return jobs.size();
+    }
+
+    public synchronized int getSegmentCount() {
+        return segmentLog.getSegmentCount();
+    }
+
+    private void replay() {
+        List<Job> due = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            for (Job job : jobs.values()) {
+                if (job.nextReplayAt <= now && handlers.containsKey(job.jobKey)) {
+                    due.add(job);
+                }
+            }
+        }
+
+        for (Job job : due) {
+            if (closed) {
+                return;
+            }
+            Throwable failure = null;
+            try {
+                handlers.get(job.jobKey).handle(job.payload);
+            } catch (Throwable e) {
+                failure = e;
+            }
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (failure == null) {
+                    log.debug("Job {} of {} is done after {} replays.", job.id, job.jobKey, job.replays + 1);
+                    done(job);
+                } else if (maxReplays > 0 && job.replays + 1 >= maxReplays) {
+                    log.error(String.format("Job %d of %s is given up after %d replays.", job.id, job.jobKey,
+                            job.replays + 1), failure);
+                    done(job);
+                } else {
+                    if (log.isWarnEnabled()) {
+                        log.warn(String.format("Job %d of %s failed in the %d replay.", job.id, job.jobKey,
+                                job.replays + 1), failure);
+                    }
+                    int replays = job.replays + 1;
+                    long nextReplayAt = System.currentTimeMillis() + replayBackoff.delay(replays + 1, 0L);
+                    putJob(new Job(job.id, job.jobKey, job.payload, replays, nextReplayAt,
+                            append(job.id, job.jobKey, job.payload, replays, nextReplayAt)));
+                }
+                segmentLog.compact(liveJobs);
+            }
+        }
+    }
+
+    private void done(Job job) {
+        try {
+            segmentLog.appendAck(job.id);
+        } catch (IOException e) {
+            // The job is replayed again after a restart.
+            log.error("Failed to save the ack of job " + job.id, e);
+        }
+        removeJob(job.id);
+    }
+
+    private long append(long id, String jobKey, byte[] payload, int replays, long nextReplayAt) {
+        try {
+            return segmentLog.appendJob(id, jobKey, payload, replays, nextReplayAt);
+        } catch (IOException e) {
+            throw new EasyRetryException("Failed to save the job of " + jobKey, e);
+        }
+    }
+
+    private void putJob(Job job) {
+        Job previous = jobs.put(job.id, job);
+        if (previous != null) {
+            liveJobs.merge(previous.segment, -1, Integer::sum);
+        }
+        liveJobs.merge(job.segment, 1, Integer::sum);
+    }
+
+    private void removeJob(long id) {
+        Job job = jobs.remove(id);
+        if (job != null) {
+            liveJobs.merge(job.segment, -1, Integer::sum);
+        }
+    }
+
+    private static void runSerialized(byte[] payload) {
+        Object job;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+            job = in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new EasyRetryException("Failed to deserialize the job.", e);
+        }
+        ((DurableRunnable) job).run();
+    }
+
+    /**
+     * Stop replaying and flush the jobs saved, the jobs not done are replayed after the queue is opened again.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        executor.shutdown();
+        try {
+            // A job being replayed is replayed again after a restart if it does not finish in time.
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            segmentLog.close();
+        }
+    }
+
+    private static final class Job {
+        private final long id;
+        private final String jobKey;
+        private final byte[] payload;
+        private final int replays;
+        private final long nextReplayAt;
+        private final long segment;
+
+        private Job(long id, String jobKey, byte[] payload, int replays, long nextReplayAt, long segment) {
+            this.id = id;
+            this.jobKey = jobKey;
+            this.payload = payload;
+            this.replays = replays;
+            this.nextReplayAt = nextReplayAt;
+            this.segment = segment;
+        }
+    }
+}
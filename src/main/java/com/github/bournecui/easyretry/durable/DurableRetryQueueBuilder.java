@@ -0,0 +1,109 @@
+package com.github.bournecui.easyretry.durable;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.github.bournecui.easyretry.EasyRetryException;
+import com.github.bournecui.easyretry.backoff.BackoffStrategy;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class DurableRetryQueueBuilder {
+
+    /**
+     * The directory of the segment files, required.
+     */
+    private File directory;
+
+    /**
+     * The size of a segment file in byte, default value is 16MB. A job must fit in a segment.
+     */
+    private int segmentSize;
+
+    /**
+     * How often the jobs saved are flushed to the disk together, in millisecond, default value is 10.
+     */
+    private long flushInterval;
+
+    /**
+     * How often the jobs are checked for replay, in millisecond, default value is 1000.
+     */
+    private long replayInterval;
+
+    /**
+     * The backoff before every replay, default is exponential from 1 minute up to 1 hour.
+     */
+    private BackoffStrategy replayBackoff;
+
+    /**
+     * A job is given up after so many replays, default value is 0 which means never.
+     */
+    private int maxReplays;
+
+    private DurableRetryQueueBuilder() {
+        segmentSize = 16 * 1024 * 1024;
+        flushInterval = 10L;
+        replayInterval = 1000L;
+        replayBackoff = BackoffStrategy.exponential(60000L, 3600000L);
+        maxReplays = 0;
+    }
+
+    public static DurableRetryQueueBuilder newBuilder() {
+        return new DurableRetryQueueBuilder();
+    }
+
+    /**
+     * Open the queue, the jobs saved in the directory before are recovered.
+     */
+    public DurableRetryQueue build() {
+        if (directory == null) {
+            throw new IllegalStateException("directory is required!");
+        }
+        if (segmentSize <= 0 || flushInterval <= 0 || replayInterval <= 0 || maxReplays < 0) {
+            throw new IllegalStateException("segmentSize, flushInterval and replayInterval must be positive and"
+                    + " maxReplays can not be negative!");
+        }
+        if (replayBackoff == null) {
+            throw new IllegalStateException("replayBackoff is required!");
+        }
+        try {
+            return new DurableRetryQueue(directory, segmentSize, flushInterval, replayInterval, replayBackoff,
+                    maxReplays);
+        } catch (IOException e) {
+            throw new EasyRetryException("Failed to open the queue in " + directory, e);
+        }
+    }
+
+    public DurableRetryQueueBuilder directory(File directory) {
+        this.directory = directory;
+        return this;
+    }
+
+    public DurableRetryQueueBuilder segmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+        return this;
+    }
+
+    public DurableRetryQueueBuilder flushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+        return this;
+    }
+
+    public DurableRetryQueueBuilder replayInterval(long replayInterval) {
+        this.replayInterval = replayInterval;
+        return this;
+    }
+
+    public DurableRetryQueueBuilder replayBackoff(BackoffStrategy replayBackoff) {
+        this.replayBackoff = replayBackoff;
+        return this;
+    }
+
+    public DurableRetryQueueBuilder maxReplays(int maxReplays) {
+        this.maxReplays = maxReplays;
+        return this;
+    }
+}
@@ -0,0 +1,13 @@
+package com.github.bournecui.easyretry.durable;
+
+import java.io.Serializable;
+
+import com.github.bournecui.easyretry.EasyRunnable;
+
+/**
+ * A job which is saved as a whole into a {@link DurableRetryQueue} by Java serialization, so no handler needs to be
+ * registered for it. Its class must still be there when it is replayed.
+ */
+@FunctionalInterface
+public interface DurableRunnable extends EasyRunnable, Serializable {
+}
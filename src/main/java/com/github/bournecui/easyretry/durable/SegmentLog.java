@@ -0,0 +1,270 @@
+package com.github.bournecui.easyretry.durable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * An append-only log of fixed size segment files, each one memory-mapped. A record is
+ * {@code [body length][CRC32 of body][body]}, the body starts with its type:
+ * <ul>
+ * <li>JOB: {@code [id][replays][next replay time][key length][key][payload length][payload]}, the whole state of
+ * a job. A job rescheduled is appended again, the latest record wins.
+ * <li>ACK: {@code [id]}, the job is done.
+ * </ul>
+ * The files are zero filled, so the log of a segment ends at the first record with a zero length, or with a bad
+ * checksum if the machine crashed before a write reached the disk. A segment whose log ends before its last
+ * non-zero byte is torn, the records after the tear are ignored but kept on the disk: the appends go to a new
+ * segment instead of overwriting them.
+ * <p>
+ * Appending only copies into the mapped buffer, {@link #force()} is left to the caller so that the fsyncs can be
+ * batched. Not thread safe, the {@link DurableRetryQueue} guards it.
+ */
+@Slf4j
+final class SegmentLog implements Closeable {
+
+    static final byte JOB = 1;
+    static final byte ACK = 2;
+
+    private static final int HEADER_SIZE = 8;
+    private static final String SUFFIX = ".segment";
+
+    interface Visitor {
+        void onJob(long segment, long id, String jobKey, byte[] payload, int replays, long nextReplayAt);
+
+        void onAck(long segment, long id);
+    }
+
+    private final File directory;
+    private final int segmentSize;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final CRC32 crc = new CRC32();
+
+    private Segment active;
+    private boolean dirty;
+
+    /**
+     * Open the log in the directory, the records found are replayed to the visitor in order.
+     */
+    SegmentLog(File directory, int segmentSize, Visitor visitor) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can not create the directory " + directory);
+        }
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                long index;
+                try {
+                    index = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+                } catch (NumberFormatException e) {
+                    log.warn("{} is not a segment of the log, it is ignored.", file);
+                    continue;
+                }
+                segments.put(index, Segment.open(index, file, segmentSize));
+            }
+        }
+        boolean torn = false;
+        for (Segment segment : segments.values()) {
+            int ignored = recover(segment, visitor);
+            torn = ignored > 0;
+            if (torn) {
+                log.warn("The log of {} is torn at {}, the {} bytes after it are ignored.", segment.file,
+                        segment.position, ignored);
+            }
+        }
+        if (segments.isEmpty()) {
+            roll();
+        } else {
+            active = segments.lastEntry().getValue();
+            if (torn) {
+                // Never overwrite the records after the tear.
+                roll();
+            }
+        }
+    }
+
+    /**
+     * @return How many bytes are left after the log of the segment, up to its last non-zero byte, 0 if it is not
+     * torn.
+     */
+    private int recover(Segment segment, Visitor visitor) {
+        ByteBuffer buffer = segment.buffer.duplicate();
+        int position = 0;
+        while (position + HEADER_SIZE <= segment.size) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || length > segment.size - position - HEADER_SIZE) {
+                break;
+            }
+            int checksum = buffer.getInt(position + 4);
+            byte[] body = new byte[length];
+            buffer.position(position + HEADER_SIZE);
+            buffer.get(body);
+            crc.reset();
+            crc.update(body, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                log.warn("Bad checksum at {} of {}, the rest of the segment is ignored.", position, segment.file);
+                break;
+            }
+
+            ByteBuffer record = ByteBuffer.wrap(body);
+            byte type = record.get();
+            long id = record.getLong();
+            if (type == JOB) {
+                int replays = record.getInt();
+                long nextReplayAt = record.getLong();
+                byte[] key = new byte[record.getInt()];
+                record.get(key);
+                byte[] payload = new byte[record.getInt()];
+                record.get(payload);
+                visitor.onJob(segment.index, id, new String(key, StandardCharsets.UTF_8), payload, replays,
+                        nextReplayAt);
+            } else if (type == ACK) {
+                visitor.onAck(segment.index, id);
+            }
+            position += HEADER_SIZE + length;
+        }
+        segment.position = position;
+        for (int i = segment.size - 1; i >= position; i--) {
+            if (buffer.get(i) != 0) {
+                return i - position + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return The segment the job is appended to.
+     */
+    long appendJob(long id, String jobKey, byte[] payload, int replays, long nextReplayAt) throws IOException {
+        byte[] key = jobKey.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = ByteBuffer.allocate(1 + 8 + 4 + 8 + 4 + key.length + 4 + payload.length);
+        body.put(JOB).putLong(id).putInt(replays).putLong(nextReplayAt)
+                .putInt(key.length).put(key)
+                .putInt(payload.length).put(payload);
+        return append(body.array());
+    }
+
+    long appendAck(long id) throws IOException {
+        ByteBuffer body = ByteBuffer.allocate(1 + 8);
+        body.put(ACK).putLong(id);
+        return append(body.array());
+    }
+
+    private long append(byte[] body) throws IOException {
+        int size = HEADER_SIZE + body.length;
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("The record of " + size + " bytes is larger than a segment.");
+        }
+        if (active.position + size > active.size) {
+            roll();
+        }
+        crc.reset();
+        crc.update(body, 0, body.length);
+        MappedByteBuffer buffer = active.buffer;
+        // The length goes last, so a record is never seen before it is complete. If the machine crashes before the
+        // pages are flushed, the checksum tells a torn record.
+        buffer.position(active.position + HEADER_SIZE);
+        buffer.put(body);
+        buffer.putInt(active.position + 4, (int) crc.getValue());
+        buffer.putInt(active.position, body.length);
+        active.position += size;
+        dirty = true;
+        return active.index;
+    }
+
+    private void roll() throws IOException {
+        if (active != null) {
+            active.buffer.force();
+        }
+        long index = active == null ? 0L : active.index + 1;
+        File file = new File(directory, String.format("%019d%s", index, SUFFIX));
+        active = Segment.open(index, file, segmentSize);
+        segments.put(index, active);
+        dirty = false;
+    }
+
+    /**
+     * Flush the records appended since the last time to the disk.
+     */
+    void force() {
+        if (dirty) {
+            active.buffer.force();
+            dirty = false;
+        }
+    }
+
+    /**
+     * Delete the oldest segments as long as the given live job counts of them are zero. The active segment is
+     * always kept.
+     *
+     * @return How many segments are deleted.
+     */
+    int compact(Map<Long, Integer> liveJobs) {
+        int deleted = 0;
+        while (segments.size() > 1) {
+            Map.Entry<Long, Segment> oldest = segments.firstEntry();
+            Integer live = liveJobs.get(oldest.getKey());
+            if (live != null && live > 0) {
+                break;
+            }
+            segments.remove(oldest.getKey());
+            if (!oldest.getValue().file.delete()) {
+                log.warn("Failed to delete the segment {}", oldest.getValue().file);
+            }
+            deleted++;
+        }
+        return deleted;
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() {
+        force();
+        segments.clear();
+    }
+
+    private static final class Segment {
+        private final long index;
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private final int size;
+        private int position;
+
+        private Segment(long index, File file, MappedByteBuffer buffer) {
+            this.index = index;
+            this.file = file;
+            this.buffer = buffer;
+            this.size = buffer.capacity();
+        }
+
+        /**
+         * The mapping stays valid after the file is closed, it is released when the buffer is collected.
+         */
+        private static Segment open(long index, File file, int segmentSize) throws IOException {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                if (raf.length() < segmentSize) {
+                    raf.setLength(segmentSize);
+                }
+                MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+                return new Segment(index, file, buffer);
+            }
+        }
+    }
+}
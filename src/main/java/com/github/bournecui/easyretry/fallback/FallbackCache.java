@@ -0,0 +1,137 @@
+package com.github.bournecui.easyretry.fallback;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
+
+/**
+ * The last known good results by key, served by {@code callWithFallback} when the job runs out of attempts, times
+ * out or the circuit breaker is open, so the caller gets a stale value instead of the failure.
+ * <p>
+ * A bounded LRU split into segments, each one behind its own lock, so callers of different keys seldom contend.
+ * A value older than the max staleness is never served and is dropped when it is read.
+ * <p>
+ * Use {@link FallbackCacheBuilder} to build an instance.
+ */
+public class FallbackCache {
+
+    @Getter
+    private final int maxSize;
+    @Getter
+    private final long maxStaleness;
+    @Getter
+    private final boolean refreshInBackground;
+
+    private final long maxStalenessNanos;
+    private final Segment[] segments;
+    private final int mask;
+
+    FallbackCache(int maxSize, long maxStaleness, int concurrencyLevel, boolean refreshInBackground) {
+        this.maxSize = maxSize;
+        this.maxStaleness = maxStaleness;
+        this.refreshInBackground = refreshInBackground;
+        this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStaleness);
+        int count = Integer.highestOneBit(Math.min(concurrencyLevel, maxSize));
+        this.segments = new Segment[count];
+        this.mask = count - 1;
+        for (int i = 0; i < count; i++) {
+            // The first segments take the remainder, so the capacities add up to the max size.
+            segments[i] = new Segment(maxSize / count + (i < maxSize % count ? 1 : 0));
+        }
+    }
+
+    /**
+     * @return The value of the key, null if there's none or it is older than the max staleness.
+     */
+    public <T> T get(Object key) {
+        Segment segment = segmentOf(key);
+        synchronized (segment) {
+            Entry entry = segment.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (maxStalenessNanos > 0 && System.nanoTime() - entry.storedAt > maxStalenessNanos) {
+                segment.remove(key);
+                return null;
+            }
+            return (T) entry.value;
+        }
+    }
+
+    /**
+     * Save a result accepted for the key, the least recently used key of its segment is evicted when it is full.
+     * A null value is not saved.
+     */
+    public void put(Object key, Object value) {
+        if (value == null) {
+            return;
+        }
+        Segment segment = segmentOf(key);
+        Entry entry = new Entry(value, System.nanoTime());
+        synchronized (segment) {
+            segment.put(key, entry);
+        }
+    }
+
+    public void invalidate(Object key) {
+        Segment segment = segmentOf(key);
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    /**
+     * @return How many values are saved, including the stale ones not read since they expired.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment segmentOf(Object key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & mask];
+    }
+
+    @Override
+    public String toString() {
+        return "FallbackCache(size=" + size() + ", maxSize=" + maxSize + ", maxStaleness=" + maxStaleness
+                + ", refreshInBackground=" + refreshInBackground + ")";
+    }
+
+    private static final class Entry {
+
+        private final Object value;
+        private final long storedAt;
+
+        private Entry(Object value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+    }
+
+    /**
+     * A map in access order which evicts its eldest entry beyond the capacity.
+     */
+    private static final class Segment extends LinkedHashMap<Object, Entry> {
+
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.bournecui.easyretry.fallback;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class FallbackCacheBuilder {
+
+    /**
+     * How many keys are kept at most, the least recently used ones are evicted, default value is 10000.
+     */
+    private int maxSize;
+
+    /**
+     * A value older than it is not served, in millisecond, default value is 0 which means never too old.
+     */
+    private long maxStaleness;
+
+    /**
+     * How many segments the keys are split into, each one with its own lock, default value is 16. It is rounded
+     * down to a power of two.
+     */
+    private int concurrencyLevel;
+
+    /**
+     * If a value saved is returned at once and the job is called in the background to refresh it, default value
+     * is false, which means the job is called first and the value is only returned when it fails.
+     */
+    private boolean refreshInBackground;
+
+    private FallbackCacheBuilder() {
+        maxSize = 10000;
+        maxStaleness = 0L;
+        concurrencyLevel = 16;
+        refreshInBackground = false;
+    }
+
+    public static FallbackCacheBuilder newBuilder() {
+        return new FallbackCacheBuilder();
+    }
+
+    public FallbackCache build() {
+        if (maxSize <= 0 || concurrencyLevel <= 0) {
+            throw new IllegalStateException("maxSize and concurrencyLevel must be positive!");
+        }
+        if (maxStaleness < 0) {
+            throw new IllegalStateException("maxStaleness can not be negative: " + maxStaleness);
+        }
+        return new FallbackCache(maxSize, maxStaleness, concurrencyLevel, refreshInBackground);
+    }
+
+    public FallbackCacheBuilder maxSize(int maxSize) {
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    public FallbackCacheBuilder maxStaleness(long maxStaleness) {
+        this.maxStaleness = maxStaleness;
+        return this;
+    }
+
+    public FallbackCacheBuilder concurrencyLevel(int concurrencyLevel) {
+        this.concurrencyLevel = concurrencyLevel;
+        return this;
+    }
+
+    public FallbackCacheBuilder refreshInBackground(boolean refreshInBackground) {
+        this.refreshInBackground = refreshInBackground;
+        return this;
+    }
+}
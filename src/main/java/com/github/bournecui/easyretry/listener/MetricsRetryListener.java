@@ -0,0 +1,112 @@
+package com.github.bournecui.easyretry.listener;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link RetryListener} which counts the attempts and records their latency, to be exported to dashboards.
+ * All the counters are {@link LongAdder}s, so they scale with the threads sharing the {@code EasyRetry}.
+ */
+public class MetricsRetryListener implements RetryListener {
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    private final LatencyHistogram attemptLatency = new LatencyHistogram();
+
+    @Override
+    public void onAttemptStart(int attempt) {
+        attempts.increment();
+        if (attempt == 1) {
+            calls.increment();
+        }
+    }
+
+    @Override
+    public void onAttemptFailure(int attempt, Throwable throwable, long elapsedNanos) {
+        failures.increment();
+        attemptLatency.record(elapsedNanos);
+    }
+
+    @Override
+    public void onResultRejected(int attempt, Object result, long elapsedNanos) {
+        rejections.increment();
+        attemptLatency.record(elapsedNanos);
+    }
+
+    @Override
+    public void onSuccess(int attempt, Object result, long elapsedNanos) {
+        successes.increment();
+        attemptLatency.record(elapsedNanos);
+    }
+
+    @Override
+    public void onExhausted(int attempts, Throwable lastFailure) {
+        exhausted.increment();
+    }
+
+    @Override
+    public void onTimeout(int attempts) {
+        timeouts.increment();
+    }
+
+    /**
+     * @return How many jobs were started.
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * @return How many attempts were made, including the first ones.
+     */
+    public long getAttempts() {
+        return attempts.sum();
+    }
+
+    /**
+     * @return How many attempts were made after the first ones.
+     */
+    public long getRetries() {
+        return attempts.sum() - calls.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    public long getSuccesses() {
+        return successes.sum();
+    }
+
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /**
+     * @return The latency of every attempt, whether it succeeded or not.
+     */
+    public LatencyHistogram getAttemptLatency() {
+        return attemptLatency;
+    }
+
+    @Override
+    public String toString() {
+        return "MetricsRetryListener(calls=" + getCalls() + ", attempts=" + getAttempts() + ", failures="
+                + getFailures() + ", rejections=" + getRejections() + ", successes=" + getSuccesses()
+                + ", exhausted=" + getExhausted() + ", timeouts=" + getTimeouts() + ", p99="
+                + attemptLatency.getPercentile(0.99) + "ns)";
+    }
+}
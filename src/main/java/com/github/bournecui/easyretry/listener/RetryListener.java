@@ -0,0 +1,66 @@
+package com.github.bournecui.easyretry.listener;
+
+/**
+ * To be notified of what the retry loop is doing, e.g. to collect metrics.
+ * <p>
+ * The listener is called on the thread running the attempt and shared by all the jobs of an {@code EasyRetry},
+ * so it must be thread safe and should return quickly. All the methods do nothing by default.
+ */
+public interface RetryListener {
+
+    /**
+     * Called before every attempt.
+     *
+     * @param attempt The attempt, starting from 1.
+     */
+    default void onAttemptStart(int attempt) {
+    }
+
+    /**
+     * Called when an attempt throws an exception.
+     *
+     * @param attempt      The attempt, starting from 1.
+     * @param throwable    The exception thrown.
+     * @param elapsedNanos How long the attempt took.
+     */
+    default void onAttemptFailure(int attempt, Throwable throwable, long elapsedNanos) {
+    }
+
+    /**
+     * Called when the result of an attempt is rejected by the {@code ResultPredicate}.
+     *
+     * @param attempt      The attempt, starting from 1.
+     * @param result       The result rejected.
+     * @param elapsedNanos How long the attempt took.
+     */
+    default void onResultRejected(int attempt, Object result, long elapsedNanos) {
+    }
+
+    /**
+     * Called when an attempt succeeds, the job finishes.
+     *
+     * @param attempt      The attempt, starting from 1.
+     * @param result       The result, null for an {@code EasyRunnable}.
+     * @param elapsedNanos How long the attempt took.
+     */
+    default void onSuccess(int attempt, Object result, long elapsedNanos) {
+    }
+
+    /**
+     * Called when retry is given up without success, except by timeout: the max attempts is reached, the
+     * exception is not retried, or the retry is not allowed by the retry budget or the circuit breaker.
+     *
+     * @param attempts    How many attempts were made.
+     * @param lastFailure The exception of the last attempt, null if its result was rejected.
+     */
+    default void onExhausted(int attempts, Throwable lastFailure) {
+    }
+
+    /**
+     * Called when retry is given up because the max wait time is reached.
+     *
+     * @param attempts How many attempts were made.
+     */
+    default void onTimeout(int attempts) {
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.bournecui.easyretry.stream;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * The iterator of a {@link Stream} which closes the stream with it.
+ */
+final class ClosingIterator<T> implements Iterator<T>, AutoCloseable {
+
+    private final Stream<T> stream;
+    private final Iterator<T> iterator;
+
+    ClosingIterator(Stream<T> stream) {
+        this.stream = stream;
+        this.iterator = stream.iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return iterator.hasNext();
+    }
+
+    @Override
+    public T next() {
+        return iterator.next();
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+}
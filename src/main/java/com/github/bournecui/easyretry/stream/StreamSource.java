@@ -0,0 +1,30 @@
+package com.github.bournecui.easyretry.stream;
+
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Opens a stream of elements, e.g. a scan of records, right after a position, so a stream failed in the middle is
+ * reopened where it stopped instead of from the start.
+ *
+ * @param <T> The element.
+ * @param <P> The position of an element, e.g. an offset or the key of a record.
+ */
+@FunctionalInterface
+public interface StreamSource<T, P> {
+
+    /**
+     * @param position The position of the last element consumed, null for the start of the stream.
+     *
+     * @return The elements after the position. It is closed after use if it is {@link AutoCloseable}.
+     */
+    Iterator<T> open(P position);
+
+    /**
+     * @param opener Opens a {@link Stream} after the position, it is closed after use.
+     */
+    static <T, P> StreamSource<T, P> ofStream(Function<P, Stream<T>> opener) {
+        return position -> new ClosingIterator<>(opener.apply(position));
+    }
+}
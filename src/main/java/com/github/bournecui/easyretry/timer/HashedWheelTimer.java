@@ -0,0 +1,332 @@
+package com.github.bournecui.easyretry.timer;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A hierarchical hashed timing wheel. There are 4 wheels of 256 slots, a slot of the first wheel is one tick, a
+ * slot of the next wheel is a whole turn of the previous one, so about 2^32 ticks are covered. A task is put into
+ * the slot of its deadline tick in the smallest wheel which covers it; each time a wheel finishes a turn, the next
+ * slot of the bigger wheel is cascaded down, until the tasks reach the first wheel and fire.
+ * <p>
+ * Scheduling and cancelling are O(1) and lock-free: the tasks are handed over to the worker thread through
+ * concurrent queues, only the worker touches the wheels. The worker parks while there is no task, so an idle
+ * timer costs nothing. A task fires in the first tick after its deadline, and runs on the worker thread.
+ */
+@Slf4j
+public class HashedWheelTimer implements RetryTimer, Closeable {
+
+    private static final int WHEEL_BITS = 8;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_TICKS = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+    @Getter
+    private final long tickNanos;
+
+    private final Slot[][] wheels = new Slot[LEVELS][WHEEL_SIZE];
+    private final Queue<WheelTimeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<WheelTimeout> cancelled = new ConcurrentLinkedQueue<>();
+    /**
+     * The tasks neither fired nor cancelled.
+     */
+    private final LongAdder pending = new LongAdder();
+    private final LongAdder fired = new LongAdder();
+    private final long startNanos;
+    private final Thread worker;
+    private volatile boolean stopped;
+    /**
+     * Set by the worker before it parks for lack of tasks, so the schedules know to wake it up.
+     */
+    private volatile boolean idle;
+
+    /**
+     * The ticks passed and the tasks in the wheels, only the worker touches them.
+     */
+    private long tick;
+    private long placed;
+
+    /**
+     * A timer of 1 millisecond ticks on a daemon thread.
+     */
+    public HashedWheelTimer() {
+        this(1, TimeUnit.MILLISECONDS, runnable -> {
+            Thread thread = new Thread(runnable, "easy-retry-wheel-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public HashedWheelTimer(long tickDuration, TimeUnit unit, ThreadFactory threadFactory) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive: " + tickDuration);
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        for (Slot[] wheel : wheels) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                wheel[i] = new Slot();
+            }
+        }
+        this.startNanos = System.nanoTime();
+        this.worker = threadFactory.newThread(this::work);
+        worker.start();
+    }
+
+    @Override
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (stopped) {
+            throw new RejectedExecutionException("The timer is stopped!");
+        }
+        long deadline = System.nanoTime() - startNanos + Math.max(unit.toNanos(delay), 0L);
+        // Round up, a task never fires before its deadline.
+        WheelTimeout timeout = new WheelTimeout(this, task, (deadline + tickNanos - 1) / tickNanos);
+        pending.increment();
+        scheduled.add(timeout);
+        if (idle) {
+            LockSupport.unpark(worker);
+        }
+        return timeout;
+    }
+
+    /**
+     * @return How many tasks are waiting to fire.
+     */
+    public long getPendingTimeouts() {
+        return pending.sum();
+    }
+
+    /**
+     * @return How many tasks fired.
+     */
+    public long getFiredTimeouts() {
+        return fired.sum();
+    }
+
+    /**
+     * Stop the worker, the tasks not fired yet never fire.
+     */
+    @Override
+    public void close() {
+        stopped = true;
+        LockSupport.unpark(worker);
+        if (Thread.currentThread() != worker) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startNanos) / tickNanos;
+    }
+
+    private void work() {
+        tick = currentTick();
+        while (!stopped) {
+            removeCancelled();
+            if (placed == 0 && scheduled.isEmpty()) {
+                // Nothing to fire, sleep until a task is scheduled. The wheels are empty, so the ticks can be
+                // skipped. The queue is checked again after the flag is set, a schedule in between either is seen
+                // or sees the flag.
+                idle = true;
+                if (scheduled.isEmpty() && !stopped) {
+                    LockSupport.park(this);
+                }
+                idle = false;
+                tick = currentTick();
+                continue;
+            }
+
+            long sleepNanos = (tick + 1) * tickNanos - (System.nanoTime() - startNanos);
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+                continue;
+            }
+
+            tick++;
+            removeCancelled();
+            addScheduled();
+            cascade();
+            expire(wheels[0][(int) (tick & WHEEL_MASK)]);
+        }
+    }
+
+    private void removeCancelled() {
+        WheelTimeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.slot != null) {
+                timeout.slot.remove(timeout);
+                placed--;
+            }
+        }
+    }
+
+    private void addScheduled() {
+        WheelTimeout timeout;
+        // Bounded, so a flood of schedules does not hold the tick back forever.
+        for (int i = 0; i < 100000 && (timeout = scheduled.poll()) != null; i++) {
+            if (timeout.state == WheelTimeout.INIT) {
+                place(timeout);
+                placed++;
+            }
+        }
+    }
+
+    /**
+     * Put the task into the slot of its deadline in the smallest wheel which covers it.
+     */
+    private void place(WheelTimeout timeout) {
+        long deadline = Math.max(timeout.deadlineTick, tick);
+        long ticks = deadline - tick;
+        if (ticks > MAX_TICKS) {
+            // Beyond the biggest wheel, it is cascaded into the farthest slot and placed again from there.
+            deadline = tick + MAX_TICKS;
+            ticks = MAX_TICKS;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && ticks >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+        int index = (int) ((deadline >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        wheels[level][index].add(timeout);
+    }
+
+    /**
+     * When a wheel finishes a turn, move the tasks in the next slot of the bigger wheel down.
+     */
+    private void cascade() {
+        int top = 0;
+        while (top < LEVELS - 1 && (tick & ((1L << (WHEEL_BITS * (top + 1))) - 1)) == 0) {
+            top++;
+        }
+        for (int level = top; level > 0; level--) {
+            Slot slot = wheels[level][(int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK)];
+            WheelTimeout timeout;
+            while ((timeout = slot.poll()) != null) {
+                place(timeout);
+            }
+        }
+    }
+
+    private void expire(Slot slot) {
+        WheelTimeout timeout;
+        while ((timeout = slot.poll()) != null) {
+            if (timeout.deadlineTick > tick) {
+                // Placed beyond the biggest wheel.
+                place(timeout);
+                continue;
+            }
+            placed--;
+            if (WheelTimeout.STATE.compareAndSet(timeout, WheelTimeout.INIT, WheelTimeout.EXPIRED)) {
+                pending.decrement();
+                fired.increment();
+                try {
+                    timeout.task.run();
+                } catch (Throwable e) {
+                    log.warn("The timer task throws an exception.", e);
+                }
+            }
+        }
+    }
+
+    private static final class WheelTimeout implements Timeout {
+        private static final int INIT = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<WheelTimeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(WheelTimeout.class, "state");
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadlineTick;
+        private volatile int state;
+
+        // Only touched by the worker.
+        private Slot slot;
+        private WheelTimeout prev;
+        private WheelTimeout next;
+
+        private WheelTimeout(HashedWheelTimer timer, Runnable task, long deadlineTick) {
+            this.timer = timer;
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, INIT, CANCELLED)) {
+                return false;
+            }
+            timer.pending.decrement();
+            timer.cancelled.add(this);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+    }
+
+    /**
+     * A doubly linked list of tasks, so a cancelled one is removed in O(1).
+     */
+    private static final class Slot {
+        private WheelTimeout head;
+        private WheelTimeout tail;
+
+        private void add(WheelTimeout timeout) {
+            timeout.slot = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        private void remove(WheelTimeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.slot = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        private WheelTimeout poll() {
+            WheelTimeout timeout = head;
+            if (timeout != null) {
+                remove(timeout);
+            }
+            return timeout;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.github.bournecui.easyretry.timer;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires the delayed retry attempts. The task only hands the attempt over to an executor, so it must return
+ * quickly, it may run on the thread of the timer.
+ */
+public interface RetryTimer {
+
+    /**
+     * @param task  The task to run after the delay.
+     * @param delay The delay.
+     * @param unit  The unit of the delay.
+     *
+     * @return The handle to cancel the task.
+     *
+     * @throws RejectedExecutionException If the timer is stopped.
+     */
+    Timeout schedule(Runnable task, long delay, TimeUnit unit);
+}
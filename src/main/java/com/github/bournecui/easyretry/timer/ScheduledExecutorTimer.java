@@ -0,0 +1,42 @@
+package com.github.bournecui.easyretry.timer;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
+
+/**
+ * A {@link RetryTimer} on a {@link ScheduledExecutorService}, every schedule and cancel costs O(log n) on the
+ * lock of its delay queue.
+ */
+public class ScheduledExecutorTimer implements RetryTimer {
+
+    @Getter
+    private final ScheduledExecutorService scheduler;
+
+    public ScheduledExecutorTimer(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        final ScheduledFuture<?> future = scheduler.schedule(task, delay, unit);
+        return new Timeout() {
+            @Override
+            public boolean cancel() {
+                return future.cancel(false);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return future.isCancelled();
+            }
+
+            @Override
+            public boolean isExpired() {
+                return future.isDone() && !future.isCancelled();
+            }
+        };
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.bournecui.easyretry.timer;
+
+/**
+ * A task scheduled on a {@link RetryTimer}.
+ */
+public interface Timeout {
+
+    /**
+     * @return False if the task already ran or was cancelled.
+     */
+    boolean cancel();
+
+    boolean isCancelled();
+
+    boolean isExpired();
+}
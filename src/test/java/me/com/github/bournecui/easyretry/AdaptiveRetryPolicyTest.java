@@ -0,0 +1,110 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.adaptive.AdaptiveRetryPolicy;
+import com.github.bournecui.easyretry.adaptive.AdaptiveRetryPolicyBuilder;
+
+public class AdaptiveRetryPolicyTest {
+
+    @Test
+    public void testDegradeAndRecover() {
+        AdaptiveRetryPolicy policy = AdaptiveRetryPolicyBuilder.newBuilder().decay(0.2).build();
+        Assert.assertEquals(5, policy.maxAttempts(5));
+        Assert.assertEquals(100L, policy.backoff(100L));
+
+        for (int i = 0; i < 50; i++) {
+            policy.onAttemptFailure(1, null, 0L);
+        }
+        Assert.assertEquals(0.0, policy.getHealth(), 0.0);
+        Assert.assertEquals(1, policy.maxAttempts(5));
+        Assert.assertEquals(400L, policy.backoff(100L));
+
+        for (int i = 0; i < 50; i++) {
+            policy.onSuccess(1, null, 0L);
+        }
+        Assert.assertEquals(1.0, policy.getHealth(), 0.0);
+        Assert.assertEquals(5, policy.maxAttempts(5));
+        Assert.assertEquals(100L, policy.backoff(100L));
+    }
+
+    @Test
+    public void testPartiallyDegraded() {
+        AdaptiveRetryPolicy policy = AdaptiveRetryPolicyBuilder.newBuilder()
+                .decay(1.0)
+                .healthySuccessRate(1.0)
+                .minSuccessRate(0.0)
+                .build();
+
+        // With no decay the success rate is the last outcome, so a rejection degrades fully.
+        policy.onResultRejected(1, null, 0L);
+        Assert.assertEquals(0.0, policy.getSuccessRate(), 0.0);
+
+        policy = AdaptiveRetryPolicyBuilder.newBuilder().decay(0.5).healthySuccessRate(1.0).minSuccessRate(0.0)
+                .maxBackoffFactor(3).build();
+        policy.onAttemptFailure(1, null, 0L);
+        Assert.assertEquals(0.5, policy.getHealth(), 1e-9);
+        Assert.assertEquals(3, policy.maxAttempts(5));
+        Assert.assertEquals(200L, policy.backoff(100L));
+    }
+
+    @Test
+    public void testSlowDependency() {
+        AdaptiveRetryPolicy policy = AdaptiveRetryPolicyBuilder.newBuilder()
+                .decay(1.0)
+                .latencyThreshold(100)
+                .build();
+
+        policy.onSuccess(1, null, TimeUnit.MILLISECONDS.toNanos(50));
+        Assert.assertEquals(1.0, policy.getHealth(), 0.0);
+
+        policy.onSuccess(1, null, TimeUnit.MILLISECONDS.toNanos(400));
+        Assert.assertEquals(0.25, policy.getHealth(), 1e-9);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testInvalidSuccessRates() {
+        AdaptiveRetryPolicyBuilder.newBuilder().healthySuccessRate(0.5).minSuccessRate(0.6).build();
+    }
+
+    @Test
+    public void testRetriesStopWhenDegraded() {
+        final AtomicInteger attempts = new AtomicInteger();
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(3)
+                .adaptivePolicy(AdaptiveRetryPolicyBuilder.newBuilder().decay(0.2).build())
+                .build();
+
+        for (int i = 0; i < 20; i++) {
+            try {
+                easyRetry.call(() -> {
+                    attempts.incrementAndGet();
+                    throw new IllegalStateException("not expected!");
+                });
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        }
+
+        // The dependency is degraded, a job gets a single attempt.
+        attempts.set(0);
+        try {
+            easyRetry.call(() -> {
+                attempts.incrementAndGet();
+                throw new IllegalStateException("not expected!");
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(1, attempts.get());
+        }
+        Assert.assertEquals(1, easyRetry.getAdaptivePolicy().maxAttempts(3));
+    }
+}
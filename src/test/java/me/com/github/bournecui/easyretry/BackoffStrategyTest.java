@@ -0,0 +1,86 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.bournecui.easyretry.backoff.BackoffStrategy;
+
+public class BackoffStrategyTest {
+
+    @Test
+    public void testExponential() {
+        BackoffStrategy backoff = BackoffStrategy.exponential(100, 1000);
+
+        Assert.assertEquals(100, backoff.delay(1, 0));
+        Assert.assertEquals(200, backoff.delay(2, 100));
+        Assert.assertEquals(800, backoff.delay(4, 400));
+        Assert.assertEquals(1000, backoff.delay(5, 800));
+        Assert.assertEquals(1000, backoff.delay(100, 1000));
+    }
+
+    @Test
+    public void testExponentialFullJitter() {
+        BackoffStrategy backoff = BackoffStrategy.exponentialFullJitter(100, 1000);
+
+        for (int attempt = 1; attempt < 100; attempt++) {
+            long delay = backoff.delay(attempt, 0);
+            Assert.assertTrue(delay >= 0 && delay <= 1000);
+        }
+    }
+
+    @Test
+    public void testDecorrelatedJitter() {
+        BackoffStrategy backoff = BackoffStrategy.decorrelatedJitter(100, 1000);
+
+        long delay = 0;
+        for (int attempt = 1; attempt < 100; attempt++) {
+            long next = backoff.delay(attempt, delay);
+            Assert.assertTrue(next >= 100 && next <= Math.min(1000, Math.max(delay * 3, 100)));
+            delay = next;
+        }
+    }
+
+    @Test
+    public void testDecorrelatedJitterUncapped() {
+        BackoffStrategy backoff = BackoffStrategy.decorrelatedJitter(100, Long.MAX_VALUE);
+
+        Assert.assertTrue(backoff.delay(10, Long.MAX_VALUE) >= 100);
+        Assert.assertTrue(backoff.delay(10, Long.MAX_VALUE / 2) >= 100);
+    }
+
+    @Test
+    public void testFibonacci() {
+        BackoffStrategy backoff = BackoffStrategy.fibonacci(100, 1000);
+
+        List<Long> delays = new ArrayList<>();
+        for (int attempt = 1; attempt <= 8; attempt++) {
+            delays.add(backoff.delay(attempt, 0));
+        }
+        Assert.assertEquals("[100, 100, 200, 300, 500, 800, 1000, 1000]", delays.toString());
+        Assert.assertEquals(1000, backoff.delay(Integer.MAX_VALUE, 0));
+    }
+
+    @Test
+    public void testBackoffStrategyUsed() {
+        final List<Long> delays = new ArrayList<>();
+        final int[] attempt = {0};
+
+        Integer result = newBuilder()
+                .maxAttempts(4)
+                .backoff((failed, previousDelay) -> {
+                    long delay = previousDelay + 1;
+                    delays.add(delay);
+                    return delay;
+                })
+                .build()
+                .call(() -> ++attempt[0], result1 -> result1 == 4);
+
+        Assert.assertSame(result, 4);
+        Assert.assertEquals("[1, 2, 3]", delays.toString());
+    }
+}
@@ -0,0 +1,225 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.bournecui.easyretry.FailureLogging;
+import com.github.bournecui.easyretry.batch.BatchResult;
+import com.github.bournecui.easyretry.batch.MissingResultException;
+import com.github.bournecui.easyretry.listener.MetricsRetryListener;
+
+public class BatchCallTest {
+
+    @Test
+    public void testOnlyFailedKeysAreRetried() throws InterruptedException {
+        final List<List<Integer>> calls = new ArrayList<>();
+
+        BatchResult<Integer, String> result = newBuilder()
+                .maxAttempts(3)
+                .build()
+                .callBatch(Arrays.asList(1, 2, 3, 4), keys -> {
+                    calls.add(new ArrayList<>(keys));
+                    BatchResult<Integer, String> batch = new BatchResult<>();
+                    for (Integer key : keys) {
+                        // The odd keys fail on the first call.
+                        if (key % 2 == 1 && calls.size() == 1) {
+                            batch.fail(key, new IllegalStateException("not expected!"));
+                        } else {
+                            batch.succeed(key, "v" + key);
+                        }
+                    }
+                    return batch;
+                });
+
+        Assert.assertTrue(result.isAllSucceeded());
+        Assert.assertEquals(4, result.getSucceeded().size());
+        Assert.assertEquals("v3", result.getSucceeded().get(3));
+        Assert.assertEquals(2, calls.size());
+        Assert.assertEquals(Arrays.asList(1, 3), calls.get(1));
+    }
+
+    @Test
+    public void testKeyGivenUpAfterMaxAttempts() throws InterruptedException {
+        final int[] calls = {0};
+
+        BatchResult<Integer, String> result = newBuilder()
+                .maxAttempts(3)
+                .build()
+                .callBatch(Arrays.asList(1, 2), keys -> {
+                    calls[0]++;
+                    BatchResult<Integer, String> batch = new BatchResult<>();
+                    for (Integer key : keys) {
+                        if (key == 2) {
+                            batch.fail(key, new IllegalStateException("not expected!"));
+                        } else {
+                            batch.succeed(key, "v" + key);
+                        }
+                    }
+                    return batch;
+                });
+
+        Assert.assertEquals(3, calls[0]);
+        Assert.assertFalse(result.isAllSucceeded());
+        Assert.assertEquals("v1", result.getSucceeded().get(1));
+        Assert.assertTrue(result.getFailed().get(2) instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testExcludedExceptionIsNotRetried() throws InterruptedException {
+        final int[] calls = {0};
+
+        BatchResult<Integer, String> result = newBuilder()
+                .maxAttempts(3)
+                .excludeExceptions(IllegalArgumentException.class)
+                .build()
+                .callBatch(Arrays.asList(1, 2), keys -> {
+                    calls[0]++;
+                    throw new IllegalArgumentException("not expected!");
+                });
+
+        Assert.assertEquals(1, calls[0]);
+        Assert.assertEquals(2, result.getFailed().size());
+    }
+
+    @Test
+    public void testMissingKeyIsRetried() throws InterruptedException {
+        final int[] calls = {0};
+
+        BatchResult<Integer, String> result = newBuilder()
+                .maxAttempts(2)
+                .build()
+                .callBatch(Arrays.asList(1, 2), keys -> {
+                    calls[0]++;
+                    // Key 2 is never answered.
+                    return new BatchResult<Integer, String>().succeed(1, "v1");
+                });
+
+        Assert.assertEquals(2, calls[0]);
+        Assert.assertTrue(result.getFailed().get(2) instanceof MissingResultException);
+        Assert.assertEquals("v1", result.getSucceeded().get(1));
+    }
+
+    @Test
+    public void testResultPredicatePerKey() throws InterruptedException {
+        final int[] calls = {0};
+
+        BatchResult<Integer, Integer> result = newBuilder()
+                .maxAttempts(2)
+                .build()
+                .callBatch(Arrays.asList(1, 2), keys -> {
+                    calls[0]++;
+                    BatchResult<Integer, Integer> batch = new BatchResult<>();
+                    for (Integer key : keys) {
+                        batch.succeed(key, key == 1 ? 3 : calls[0]);
+                    }
+                    return batch;
+                }, value -> value >= 3);
+
+        // Key 2 is always rejected, the value of its last attempt is returned the same as call does.
+        Assert.assertEquals(2, calls[0]);
+        Assert.assertFalse(result.isAllSucceeded());
+        Assert.assertEquals(3, result.getSucceeded().get(1).intValue());
+        Assert.assertFalse(result.isSucceeded(2));
+        Assert.assertEquals(2, result.getRejected().get(2).intValue());
+    }
+
+    @Test
+    public void testAllRejected() throws InterruptedException {
+        BatchResult<Integer, Integer> result = newBuilder()
+                .maxAttempts(3)
+                .build()
+                .callBatch(Arrays.asList(1, 2), keys -> {
+                    BatchResult<Integer, Integer> batch = new BatchResult<>();
+                    for (Integer key : keys) {
+                        batch.succeed(key, key);
+                    }
+                    return batch;
+                }, value -> false);
+
+        Assert.assertFalse(result.isAllSucceeded());
+        Assert.assertTrue(result.getSucceeded().isEmpty());
+        Assert.assertTrue(result.getFailed().isEmpty());
+        Assert.assertEquals(2, result.getRejected().size());
+    }
+
+    @Test
+    public void testFailedKeysRegrouped() throws InterruptedException {
+        final List<List<Integer>> calls = new ArrayList<>();
+
+        BatchResult<Integer, String> result = newBuilder()
+                .maxAttempts(2)
+                .retryBatchSize(2)
+                .build()
+                .callBatch(Arrays.asList(1, 2, 3, 4, 5), keys -> {
+                    calls.add(new ArrayList<>(keys));
+                    if (calls.size() == 1) {
+                        throw new IllegalStateException("not expected!");
+                    }
+                    BatchResult<Integer, String> batch = new BatchResult<>();
+                    for (Integer key : keys) {
+                        batch.succeed(key, "v" + key);
+                    }
+                    return batch;
+                });
+
+        Assert.assertTrue(result.isAllSucceeded());
+        Assert.assertEquals(4, calls.size());
+        Assert.assertEquals(Arrays.asList(1, 2), calls.get(1));
+        Assert.assertEquals(Arrays.asList(3, 4), calls.get(2));
+        Assert.assertEquals(Arrays.asList(5), calls.get(3));
+    }
+
+    @Test
+    public void testNullResult() throws InterruptedException {
+        final int[] calls = {0};
+
+        BatchResult<Integer, String> result = newBuilder()
+                .maxAttempts(2)
+                .build()
+                .callBatch(Arrays.asList(1, 2), keys -> {
+                    calls[0]++;
+                    return null;
+                });
+
+        Assert.assertEquals(2, calls[0]);
+        Assert.assertTrue(result.getFailed().get(1) instanceof MissingResultException);
+        Assert.assertTrue(result.getFailed().get(2) instanceof MissingResultException);
+    }
+
+    /**
+     * Every batch call is an attempt to the listener.
+     */
+    @Test
+    public void testListener() throws InterruptedException {
+        MetricsRetryListener metrics = new MetricsRetryListener();
+        final int[] calls = {0};
+
+        newBuilder()
+                .maxAttempts(3)
+                .listener(metrics)
+                .failureLogging(FailureLogging.OFF)
+                .build()
+                .callBatch(Arrays.asList(1, 2), keys -> {
+                    calls[0]++;
+                    BatchResult<Integer, String> batch = new BatchResult<>();
+                    for (Integer key : keys) {
+                        if (key == 2) {
+                            batch.fail(key, new IllegalStateException("not expected!"));
+                        } else {
+                            batch.succeed(key, "v" + key);
+                        }
+                    }
+                    return batch;
+                });
+
+        Assert.assertEquals(3, metrics.getAttempts());
+        Assert.assertEquals(3, metrics.getFailures());
+        Assert.assertEquals(1, metrics.getExhausted());
+    }
+}
@@ -0,0 +1,199 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.bulkhead.Bulkhead;
+import com.github.bournecui.easyretry.bulkhead.BulkheadFullException;
+
+public class BulkheadTest {
+
+    /**
+     * Hold a permit of the bulkhead in another thread until the latch is released.
+     */
+    private static CountDownLatch occupy(EasyRetry easyRetry) throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread thread = new Thread(() -> easyRetry.run(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        thread.setDaemon(true);
+        thread.start();
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    @Test
+    public void testRejectWhenFull() throws InterruptedException {
+        Bulkhead bulkhead = new Bulkhead(1);
+        EasyRetry easyRetry = newBuilder().bulkhead(bulkhead).build();
+
+        CountDownLatch release = occupy(easyRetry);
+        try {
+            easyRetry.call(() -> 1);
+            Assert.fail();
+        } catch (BulkheadFullException e) {
+            Assert.assertEquals(1, bulkhead.getRejections());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testWaitForPermit() throws InterruptedException {
+        Bulkhead bulkhead = new Bulkhead(1, 1, 5000);
+        EasyRetry easyRetry = newBuilder().bulkhead(bulkhead).build();
+
+        final CountDownLatch release = occupy(easyRetry);
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        }).start();
+
+        Assert.assertEquals(1, easyRetry.call(() -> 1).intValue());
+        Assert.assertEquals(0, bulkhead.getRejections());
+        Assert.assertEquals(1, bulkhead.getAvailablePermits());
+    }
+
+    @Test
+    public void testWaitQueueIsBounded() throws InterruptedException {
+        Bulkhead bulkhead = new Bulkhead(1, 1, 5000);
+        EasyRetry easyRetry = newBuilder().bulkhead(bulkhead).build();
+
+        CountDownLatch release = occupy(easyRetry);
+        Thread waiter = new Thread(() -> easyRetry.call(() -> 1));
+        waiter.setDaemon(true);
+        waiter.start();
+        while (bulkhead.getWaitingCalls() == 0) {
+            Thread.sleep(1);
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            easyRetry.call(() -> 1);
+            Assert.fail();
+        } catch (BulkheadFullException e) {
+            Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+        } finally {
+            release.countDown();
+        }
+        waiter.join(5000);
+        Assert.assertEquals(1, bulkhead.getAvailablePermits());
+    }
+
+    @Test
+    public void testRetryTakesPermit() throws InterruptedException {
+        final Bulkhead bulkhead = new Bulkhead(1, 1, 100);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger attempt = new AtomicInteger();
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(3)
+                .backoff(50)
+                .bulkhead(bulkhead)
+                .build();
+
+        try {
+            easyRetry.call(() -> {
+                attempt.incrementAndGet();
+                // Another job queues for the permit and keeps it when this attempt finishes.
+                Thread other = new Thread(() -> {
+                    try {
+                        if (bulkhead.acquire()) {
+                            release.await();
+                            bulkhead.release();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                other.setDaemon(true);
+                other.start();
+                while (bulkhead.getWaitingCalls() == 0) {
+                    Thread.yield();
+                }
+                throw new IllegalStateException("not expected!");
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // The retry got no permit, the last exception is thrown.
+            Assert.assertEquals(1, attempt.get());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testPermitsReleased() {
+        Bulkhead bulkhead = new Bulkhead(2);
+        EasyRetry easyRetry = newBuilder().maxAttempts(3).bulkhead(bulkhead).build();
+
+        for (int i = 0; i < 10; i++) {
+            try {
+                easyRetry.call(() -> {
+                    throw new IllegalStateException("not expected!");
+                });
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        }
+        Assert.assertEquals(2, bulkhead.getAvailablePermits());
+    }
+
+    @Test
+    public void testCallAsyncRejected() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1);
+        EasyRetry easyRetry = newBuilder().bulkhead(bulkhead).build();
+
+        CountDownLatch release = occupy(easyRetry);
+        CompletableFuture<Integer> future = easyRetry.callAsync(() -> 1);
+        try {
+            future.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof BulkheadFullException);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    /**
+     * An async call does not wait in the queue of the bulkhead, it fails at once.
+     */
+    @Test
+    public void testCallAsyncDoesNotWait() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, 1, 5000);
+        EasyRetry easyRetry = newBuilder().bulkhead(bulkhead).build();
+
+        CountDownLatch release = occupy(easyRetry);
+        long start = System.currentTimeMillis();
+        CompletableFuture<Integer> future = easyRetry.callAsync(() -> 1);
+        Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+        try {
+            future.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof BulkheadFullException);
+        } finally {
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.bulkhead.Bulkhead;
+import com.github.bournecui.easyretry.bulkhead.BulkheadFullException;
+import com.github.bournecui.easyretry.circuit.CircuitBreaker;
+import com.github.bournecui.easyretry.circuit.CircuitBreakerBuilder;
+import com.github.bournecui.easyretry.circuit.CircuitBreakerOpenException;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void testStateTransitions() throws InterruptedException {
+        CircuitBreaker circuitBreaker = CircuitBreakerBuilder.newBuilder()
+                .windowSize(10)
+                .minimumCalls(4)
+                .failureRateThreshold(0.5)
+                .openDuration(50)
+                .halfOpenTrials(2)
+                .build();
+
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        Assert.assertFalse(circuitBreaker.tryAcquire());
+
+        Thread.sleep(60);
+        Assert.assertTrue(circuitBreaker.tryAcquire());
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        Assert.assertTrue(circuitBreaker.tryAcquire());
+        Assert.assertFalse(circuitBreaker.tryAcquire());
+        circuitBreaker.onFailure();
+        Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        Thread.sleep(60);
+        Assert.assertTrue(circuitBreaker.tryAcquire());
+        Assert.assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        Assert.assertEquals(0, circuitBreaker.getFailureRate(), 0);
+    }
+
+    @Test
+    public void testSlidingWindow() {
+        CircuitBreaker circuitBreaker = CircuitBreakerBuilder.newBuilder()
+                .windowSize(4)
+                .minimumCalls(4)
+                .failureRateThreshold(1)
+                .build();
+
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        Assert.assertEquals(0.75, circuitBreaker.getFailureRate(), 0);
+
+        // The success is pushed out of the window.
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void testFailFast() {
+        final int[] attempt = {0};
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(3)
+                .circuitBreaker(CircuitBreakerBuilder.newBuilder()
+                        .windowSize(10)
+                        .minimumCalls(5)
+                        .build())
+                .build();
+
+        try {
+            easyRetry.call(() -> {
+                ++attempt[0];
+                throw new IllegalStateException("not expected!");
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(3, attempt[0]);
+        }
+
+        try {
+            easyRetry.call(() -> {
+                ++attempt[0];
+                throw new IllegalStateException("not expected!");
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // The circuit opens after the 5th attempt, so the 6th is not attempted.
+            Assert.assertEquals(5, attempt[0]);
+        }
+
+        try {
+            easyRetry.call(() -> ++attempt[0]);
+            Assert.fail();
+        } catch (CircuitBreakerOpenException e) {
+            Assert.assertEquals(5, attempt[0]);
+        }
+    }
+
+    @Test
+    public void testTrialReleasedWhenBulkheadFull() throws InterruptedException {
+        CircuitBreaker circuitBreaker = CircuitBreakerBuilder.newBuilder()
+                .windowSize(1)
+                .minimumCalls(1)
+                .openDuration(50)
+                .halfOpenTrials(1)
+                .build();
+        Bulkhead bulkhead = new Bulkhead(1);
+        EasyRetry easyRetry = newBuilder()
+                .circuitBreaker(circuitBreaker)
+                .bulkhead(bulkhead)
+                .build();
+
+        circuitBreaker.onFailure();
+        Thread.sleep(60);
+        Assert.assertTrue(bulkhead.tryAcquire());
+        try {
+            easyRetry.call(() -> 1);
+            Assert.fail();
+        } catch (BulkheadFullException e) {
+            Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        } finally {
+            bulkhead.release();
+        }
+
+        // The trial rejected by the bulkhead is still allowed, it closes the circuit.
+        Assert.assertEquals(1, easyRetry.call(() -> 1).intValue());
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBadOpenDuration() {
+        CircuitBreakerBuilder.newBuilder().openDuration(0).build();
+    }
+}
@@ -0,0 +1,211 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.TimeoutException;
+import com.github.bournecui.easyretry.circuit.CircuitBreaker;
+import com.github.bournecui.easyretry.circuit.CircuitBreakerBuilder;
+import com.github.bournecui.easyretry.clock.Clock;
+import com.github.bournecui.easyretry.clock.Sleeper;
+import com.github.bournecui.easyretry.listener.RetryListener;
+
+public class ClockTest {
+
+    /**
+     * Time only moves when it sleeps or is advanced.
+     */
+    private static class ManualClock implements Clock, Sleeper {
+
+        private long now;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+
+        @Override
+        public void sleep(long millis) {
+            advance(millis);
+        }
+
+        void advance(long millis) {
+            now += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+    }
+
+    @Test
+    public void testBackoffOnVirtualTime() {
+        ManualClock clock = new ManualClock();
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(100)
+                .maxWaitTime(TimeUnit.HOURS.toMillis(1))
+                .backoff(TimeUnit.MINUTES.toMillis(10))
+                .clock(clock)
+                .sleeper(clock)
+                .build();
+        final int[] attempts = {0};
+
+        long start = System.nanoTime();
+        try {
+            easyRetry.run(() -> {
+                attempts[0]++;
+                throw new IllegalStateException("not expected!");
+            });
+            Assert.fail();
+        } catch (TimeoutException e) {
+            // The 7th attempt would start at the max wait time.
+            Assert.assertEquals(6, attempts[0]);
+            Assert.assertEquals(TimeUnit.MINUTES.toNanos(50), clock.nanoTime());
+        }
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void testLatencyOnVirtualTime() {
+        final ManualClock clock = new ManualClock();
+        final List<Long> latencies = new CopyOnWriteArrayList<>();
+        EasyRetry easyRetry = newBuilder()
+                .clock(clock)
+                .sleeper(clock)
+                .listener(new RetryListener() {
+                    @Override
+                    public void onSuccess(int attempt, Object result, long elapsedNanos) {
+                        latencies.add(elapsedNanos);
+                    }
+                })
+                .build();
+
+        easyRetry.call(() -> {
+            clock.advance(5);
+            return 1;
+        });
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(5), latencies.get(0).longValue());
+    }
+
+    @Test
+    public void testCircuitBreakerOnVirtualTime() {
+        ManualClock clock = new ManualClock();
+        CircuitBreaker circuitBreaker = CircuitBreakerBuilder.newBuilder()
+                .windowSize(4)
+                .minimumCalls(4)
+                .openDuration(60000L)
+                .clock(clock)
+                .build();
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.onFailure();
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        Assert.assertFalse(circuitBreaker.tryAcquire());
+
+        clock.advance(60000L);
+        Assert.assertTrue(circuitBreaker.tryAcquire());
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+    }
+
+    /**
+     * A retry given up before it starts, past the max wait time or interrupted in its backoff, keeps the trial of a
+     * half-open circuit for another call.
+     */
+    @Test
+    public void testHalfOpenTrialKeptWhenRetryGivenUp() throws InterruptedException {
+        ManualClock clock = new ManualClock();
+        CircuitBreaker circuitBreaker = CircuitBreakerBuilder.newBuilder()
+                .windowSize(4)
+                .minimumCalls(4)
+                .openDuration(500L)
+                .halfOpenTrials(1)
+                .clock(clock)
+                .build();
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(3)
+                .maxWaitTime(1000L)
+                .backoff(10000L)
+                .circuitBreaker(circuitBreaker)
+                .clock(clock)
+                .sleeper(clock)
+                .build();
+
+        try {
+            // The circuit opens by the failures of other calls meanwhile, and turns half-open by the retry.
+            easyRetry.run(() -> {
+                for (int i = 0; i < 4; i++) {
+                    circuitBreaker.onFailure();
+                }
+                clock.advance(500L);
+                throw new IllegalStateException("not expected!");
+            });
+            Assert.fail();
+        } catch (TimeoutException e) {
+            Assert.assertTrue(circuitBreaker.tryAcquire());
+        }
+
+        Sleeper interrupted = millis -> {
+            throw new InterruptedException();
+        };
+        CircuitBreaker another = CircuitBreakerBuilder.newBuilder()
+                .windowSize(4)
+                .minimumCalls(4)
+                .openDuration(500L)
+                .halfOpenTrials(1)
+                .clock(clock)
+                .build();
+        EasyRetry interruptedEasyRetry = newBuilder()
+                .maxAttempts(3)
+                .backoff(10L)
+                .circuitBreaker(another)
+                .clock(clock)
+                .sleeper(interrupted)
+                .build();
+        try {
+            interruptedEasyRetry.runInterruptable(() -> {
+                for (int i = 0; i < 4; i++) {
+                    another.onFailure();
+                }
+                clock.advance(500L);
+                throw new IllegalStateException("not expected!");
+            });
+            Assert.fail();
+        } catch (InterruptedException e) {
+            Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, another.getState());
+            Assert.assertTrue(another.tryAcquire());
+        }
+    }
+
+    /**
+     * The hedge delay and the max wait time are both read on the clock, a clock which does not move never times
+     * out and hedges no more than {@code maxAttempts}.
+     */
+    @Test
+    public void testHedgedOnFixedClock() throws InterruptedException {
+        ManualClock clock = new ManualClock();
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(3)
+                .maxWaitTime(60000L)
+                .hedgeDelay(10000L)
+                .clock(clock)
+                .sleeper(clock)
+                .build();
+        AtomicInteger attempts = new AtomicInteger();
+
+        Integer result = easyRetry.callHedged(() -> {
+            attempts.incrementAndGet();
+            try {
+                Thread.sleep(200L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        });
+        Assert.assertEquals(Integer.valueOf(1), result);
+        Assert.assertEquals(1, attempts.get());
+    }
+}
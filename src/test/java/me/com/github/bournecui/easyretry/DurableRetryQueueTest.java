@@ -0,0 +1,233 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.backoff.BackoffStrategy;
+import com.github.bournecui.easyretry.durable.DurableRetryQueue;
+import com.github.bournecui.easyretry.durable.DurableRetryQueueBuilder;
+
+public class DurableRetryQueueTest {
+
+    private static final AtomicInteger SERIALIZED_RUNS = new AtomicInteger();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DurableRetryQueue open(File directory, int segmentSize) {
+        return DurableRetryQueueBuilder.newBuilder()
+                .directory(directory)
+                .segmentSize(segmentSize)
+                .replayInterval(10)
+                .replayBackoff(BackoffStrategy.fixed(10))
+                .build();
+    }
+
+    private static void awaitDone(DurableRetryQueue queue) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (queue.getPendingJobs() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Assert.assertEquals(0, queue.getPendingJobs());
+    }
+
+    @Test
+    public void testReplayUntilSucceeded() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        final List<String> handled = new CopyOnWriteArrayList<>();
+        try (DurableRetryQueue queue = open(folder.newFolder(), 4096)) {
+            queue.register("order", payload -> {
+                if (runs.incrementAndGet() < 3) {
+                    throw new IllegalStateException("not expected!");
+                }
+                handled.add(new String(payload, StandardCharsets.UTF_8));
+            });
+            queue.enqueue("order", "42".getBytes(StandardCharsets.UTF_8));
+
+            awaitDone(queue);
+            Assert.assertEquals(3, runs.get());
+            Assert.assertEquals("42", handled.get(0));
+        }
+    }
+
+    @Test
+    public void testSurviveRestart() throws Exception {
+        File directory = folder.newFolder();
+        try (DurableRetryQueue queue = open(directory, 4096)) {
+            queue.enqueue("order", "1".getBytes(StandardCharsets.UTF_8));
+            queue.enqueue("order", "2".getBytes(StandardCharsets.UTF_8));
+        }
+
+        final List<String> handled = new CopyOnWriteArrayList<>();
+        try (DurableRetryQueue queue = open(directory, 4096)) {
+            Assert.assertEquals(2, queue.getPendingJobs());
+            queue.register("order", payload -> handled.add(new String(payload, StandardCharsets.UTF_8)));
+            awaitDone(queue);
+        }
+        Assert.assertEquals(2, handled.size());
+        Assert.assertTrue(handled.contains("1") && handled.contains("2"));
+
+        try (DurableRetryQueue queue = open(directory, 4096)) {
+            Assert.assertEquals(0, queue.getPendingJobs());
+        }
+    }
+
+    @Test
+    public void testTornRecordIgnored() throws Exception {
+        File directory = folder.newFolder();
+        try (DurableRetryQueue queue = open(directory, 4096)) {
+            queue.enqueue("order", "1".getBytes(StandardCharsets.UTF_8));
+            queue.enqueue("order", "2".getBytes(StandardCharsets.UTF_8));
+        }
+
+        // Break the last byte of the second record.
+        File[] segments = directory.listFiles();
+        Assert.assertEquals(1, segments.length);
+        int recordSize = 8 + 1 + 8 + 4 + 8 + 4 + 5 + 4 + 1;
+        try (RandomAccessFile raf = new RandomAccessFile(segments[0], "rw")) {
+            raf.seek(2 * recordSize - 1);
+            raf.write('x');
+        }
+
+        try (DurableRetryQueue queue = open(directory, 4096)) {
+            Assert.assertEquals(1, queue.getPendingJobs());
+        }
+    }
+
+    @Test
+    public void testRecordsAfterTearKept() throws Exception {
+        File directory = folder.newFolder();
+        try (DurableRetryQueue queue = open(directory, 4096)) {
+            queue.enqueue("order", "1".getBytes(StandardCharsets.UTF_8));
+            queue.enqueue("order", "2".getBytes(StandardCharsets.UTF_8));
+            queue.enqueue("order", "3".getBytes(StandardCharsets.UTF_8));
+        }
+        Assert.assertTrue(new File(directory, "notes.segment").createNewFile());
+
+        // Break the second record, the third one is valid after the tear.
+        File segment = directory.listFiles((dir, name) -> !name.startsWith("notes"))[0];
+        int recordSize = 8 + 1 + 8 + 4 + 8 + 4 + 5 + 4 + 1;
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            raf.seek(2 * recordSize - 1);
+            raf.write('x');
+        }
+        byte[] before = Files.readAllBytes(segment.toPath());
+
+        try (DurableRetryQueue queue = open(directory, 4096)) {
+            Assert.assertEquals(1, queue.getPendingJobs());
+            Assert.assertEquals(2, queue.getSegmentCount());
+            queue.enqueue("order", "4".getBytes(StandardCharsets.UTF_8));
+        }
+        Assert.assertArrayEquals(before, Files.readAllBytes(segment.toPath()));
+
+        try (DurableRetryQueue queue = open(directory, 4096)) {
+            Assert.assertEquals(2, queue.getPendingJobs());
+        }
+    }
+
+    @Test
+    public void testSegmentsCompacted() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        try (DurableRetryQueue queue = open(folder.newFolder(), 256)) {
+            for (int i = 0; i < 50; i++) {
+                queue.enqueue("order", new byte[64]);
+            }
+            Assert.assertTrue(queue.getSegmentCount() > 10);
+
+            queue.register("order", payload -> runs.incrementAndGet());
+            awaitDone(queue);
+            Assert.assertEquals(50, runs.get());
+            Assert.assertEquals(1, queue.getSegmentCount());
+        }
+    }
+
+    @Test
+    public void testGivenUpAfterMaxReplays() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        try (DurableRetryQueue queue = DurableRetryQueueBuilder.newBuilder()
+                .directory(folder.newFolder())
+                .replayInterval(10)
+                .replayBackoff(BackoffStrategy.fixed(10))
+                .maxReplays(3)
+                .build()) {
+            queue.register("order", payload -> {
+                runs.incrementAndGet();
+                throw new IllegalStateException("not expected!");
+            });
+            queue.enqueue("order", new byte[0]);
+
+            awaitDone(queue);
+            Assert.assertEquals(3, runs.get());
+        }
+    }
+
+    @Test
+    public void testRunDurable() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        try (DurableRetryQueue queue = open(folder.newFolder(), 4096)) {
+            queue.register("order", payload -> {
+                if (runs.incrementAndGet() <= 3) {
+                    throw new IllegalStateException("not expected!");
+                }
+            });
+            EasyRetry easyRetry = newBuilder().maxAttempts(3).durableQueue(queue).build();
+
+            Assert.assertFalse(easyRetry.runDurable("order", new byte[0]));
+            Assert.assertEquals(3, runs.get());
+            Assert.assertEquals(1, queue.getPendingJobs());
+
+            awaitDone(queue);
+            Assert.assertEquals(4, runs.get());
+            Assert.assertTrue(easyRetry.runDurable("order", new byte[0]));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRunDurableExcludedException() throws IOException {
+        try (DurableRetryQueue queue = open(folder.newFolder(), 4096)) {
+            queue.register("order", payload -> {
+                throw new IllegalArgumentException("not expected!");
+            });
+            EasyRetry easyRetry = newBuilder()
+                    .excludeExceptions(IllegalArgumentException.class)
+                    .durableQueue(queue)
+                    .build();
+
+            try {
+                easyRetry.runDurable("order", new byte[0]);
+            } finally {
+                Assert.assertEquals(0, queue.getPendingJobs());
+            }
+        }
+    }
+
+    @Test
+    public void testRunDurableSerialized() throws Exception {
+        SERIALIZED_RUNS.set(0);
+        try (DurableRetryQueue queue = open(folder.newFolder(), 4096)) {
+            EasyRetry easyRetry = newBuilder().maxAttempts(2).durableQueue(queue).build();
+
+            Assert.assertFalse(easyRetry.runDurable(() -> {
+                if (SERIALIZED_RUNS.incrementAndGet() <= 2) {
+                    throw new IllegalStateException("not expected!");
+                }
+            }));
+            awaitDone(queue);
+            Assert.assertEquals(3, SERIALIZED_RUNS.get());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.bournecui.easyretry.FailureLogging;
+import com.github.bournecui.easyretry.TimeoutException;
+
+public class EasyRetryAsyncTest {
+
+    @Test
+    public void testRunAsync() throws Exception {
+        final AtomicInteger attempt = new AtomicInteger();
+
+        newBuilder().build().runAsync(attempt::incrementAndGet).get();
+        Assert.assertEquals(1, attempt.get());
+    }
+
+    @Test
+    public void testCallAsyncWithBackoff() throws Exception {
+        final AtomicInteger attempt = new AtomicInteger();
+
+        Integer result = newBuilder()
+                .maxAttempts(5)
+                .backoff(10)
+                .includeExceptions(IllegalStateException.class)
+                .build()
+                .callAsync(() -> {
+                    if (attempt.incrementAndGet() < 3) {
+                        throw new IllegalStateException(attempt + " is not expected!");
+                    }
+                    return attempt.get();
+                })
+                .get();
+
+        Assert.assertEquals(3, result.intValue());
+        Assert.assertEquals(3, attempt.get());
+    }
+
+    @Test
+    public void testCallAsyncResultPredicate() throws Exception {
+        final AtomicInteger attempt = new AtomicInteger();
+
+        Integer result = newBuilder()
+                .maxAttempts(5)
+                .build()
+                .callAsync(attempt::incrementAndGet, result1 -> result1 == 2)
+                .get();
+
+        Assert.assertEquals(2, result.intValue());
+    }
+
+    @Test
+    public void testCallAsyncExclude() throws Exception {
+        final AtomicInteger attempt = new AtomicInteger();
+
+        CompletableFuture<Integer> future = newBuilder()
+                .maxAttempts(3)
+                .excludeExceptions(IllegalStateException.class)
+                .build()
+                .callAsync(() -> {
+                    attempt.incrementAndGet();
+                    throw new IllegalStateException("not expected!");
+                });
+
+        try {
+            future.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        Assert.assertEquals(1, attempt.get());
+    }
+
+    @Test
+    public void testCallAsyncTimeout() throws Exception {
+        CompletableFuture<Integer> future = newBuilder()
+                .maxAttempts(5)
+                .maxWaitTime(100L)
+                .backoff(80)
+                .build()
+                .callAsync(() -> {
+                    throw new IllegalStateException("not expected!");
+                });
+
+        try {
+            future.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+
+    /**
+     * The async executor is not held while an attempt with a timeout runs.
+     */
+    @Test
+    public void testAttemptTimeoutDoesNotBlock() throws Exception {
+        final AtomicInteger attempt = new AtomicInteger();
+        ExecutorService asyncExecutor = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<Integer> future = newBuilder()
+                    .maxAttempts(2)
+                    .attemptTimeout(500)
+                    .asyncExecutor(asyncExecutor)
+                    .failureLogging(FailureLogging.OFF)
+                    .build()
+                    .callAsync(() -> {
+                        if (attempt.incrementAndGet() == 1) {
+                            try {
+                                Thread.sleep(5000);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                        return attempt.get();
+                    });
+
+            while (attempt.get() == 0) {
+                Thread.sleep(1);
+            }
+            // The only thread of the async executor is free during the first attempt.
+            long start = System.nanoTime();
+            asyncExecutor.submit(() -> null).get(5, TimeUnit.SECONDS);
+            Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(300));
+
+            Assert.assertEquals(2, future.get(5, TimeUnit.SECONDS).intValue());
+        } finally {
+            asyncExecutor.shutdown();
+        }
+    }
+}
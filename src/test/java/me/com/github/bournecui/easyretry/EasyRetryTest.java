@@ -272,6 +272,37 @@ public class EasyRetryTest {
         Assert.assertSame(attempt[0], 3);
     }
 
+    @Test
+    public void testExceptionClassifiedRepeatedly() {
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(3)
+                .includeExceptions(RuntimeException.class)
+                .excludeExceptions(IllegalArgumentException.class)
+                .build();
+
+        for (int i = 0; i < 3; i++) {
+            final int[] attempt = {0};
+            Integer result = easyRetry.call(() -> {
+                if (++attempt[0] < 3) {
+                    throw new IllegalStateException(attempt[0] + " is not expected!");
+                }
+                return attempt[0];
+            });
+            Assert.assertSame(result, 3);
+
+            final int[] excluded = {0};
+            try {
+                easyRetry.call(() -> {
+                    ++excluded[0];
+                    throw new NumberFormatException("not expected!");
+                });
+                Assert.fail();
+            } catch (NumberFormatException e) {
+                Assert.assertSame(excluded[0], 1);
+            }
+        }
+    }
+
     @Test(expected = IllegalStateException.class)
     public void testBothIncludeAndExclude() {
         newBuilder()
@@ -321,6 +352,62 @@ public class EasyRetryTest {
         Assert.assertSame(attempt[0], 3);
     }
 
+    @Test
+    public void testAttemptTimeout() {
+        final int[] attempt = {0};
+
+        Integer result = newBuilder()
+                .maxAttempts(3)
+                .attemptTimeout(50)
+                .includeExceptions(IllegalArgumentException.class)
+                .build()
+                .call(() -> {
+                    if (++attempt[0] < 3) {
+                        try {
+                            Thread.sleep(10000);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    return attempt[0];
+                });
+
+        Assert.assertSame(result, 3);
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void testAttemptTimeoutAndMaxWaitTime() {
+        long start = System.currentTimeMillis();
+        try {
+            newBuilder()
+                    .maxAttempts(10)
+                    .attemptTimeout(1000)
+                    .maxWaitTime(100L)
+                    .build()
+                    .call(() -> {
+                        try {
+                            Thread.sleep(10000);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return 1;
+                    });
+        } finally {
+            Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAttemptTimeoutRethrowsException() {
+        newBuilder()
+                .maxAttempts(1)
+                .attemptTimeout(1000)
+                .build()
+                .call(() -> {
+                    throw new IllegalArgumentException("not expected!");
+                });
+    }
+
     @Test
     public void testUseage() {
 
@@ -0,0 +1,102 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.FailureLogging;
+
+/**
+ * The simple plan behaves as the generic loop for the configurations it is chosen for.
+ */
+public class ExecutionPlanTest {
+
+    private static EasyRetry build(boolean specialized, List<Long> sleeps) {
+        return newBuilder()
+                .maxAttempts(3)
+                .backoff((attempt, previousDelay) -> attempt * 10L)
+                .includeExceptions(IllegalStateException.class)
+                .failureLogging(FailureLogging.SUMMARY)
+                .sleeper(sleeps::add)
+                .specializedPlan(specialized)
+                .build();
+    }
+
+    @Test
+    public void testSucceedAfterFailures() {
+        for (boolean specialized : new boolean[] {true, false}) {
+            List<Long> sleeps = new ArrayList<>();
+            AtomicInteger calls = new AtomicInteger();
+            Integer result = build(specialized, sleeps).call(() -> {
+                if (calls.incrementAndGet() < 3) {
+                    throw new IllegalStateException("failed");
+                }
+                return 42;
+            });
+            Assert.assertEquals(Integer.valueOf(42), result);
+            Assert.assertEquals(3, calls.get());
+            Assert.assertEquals("specialized: " + specialized, "[10, 20]", sleeps.toString());
+        }
+    }
+
+    @Test
+    public void testExhausted() {
+        for (boolean specialized : new boolean[] {true, false}) {
+            AtomicInteger calls = new AtomicInteger();
+            try {
+                build(specialized, new ArrayList<>()).run(() -> {
+                    throw new IllegalStateException("failed " + calls.incrementAndGet());
+                });
+                Assert.fail("Should be thrown");
+            } catch (IllegalStateException e) {
+                Assert.assertEquals("failed 3", e.getMessage());
+                Assert.assertEquals(2, e.getSuppressed().length);
+            }
+            Assert.assertEquals(3, calls.get());
+        }
+    }
+
+    @Test
+    public void testNotRetried() {
+        for (boolean specialized : new boolean[] {true, false}) {
+            AtomicInteger calls = new AtomicInteger();
+            try {
+                build(specialized, new ArrayList<>()).call(() -> {
+                    calls.incrementAndGet();
+                    throw new IllegalArgumentException("not retried");
+                });
+                Assert.fail("Should be thrown");
+            } catch (IllegalArgumentException e) {
+                Assert.assertEquals(0, e.getSuppressed().length);
+            }
+            Assert.assertEquals(1, calls.get());
+        }
+    }
+
+    @Test
+    public void testResultRejected() {
+        for (boolean specialized : new boolean[] {true, false}) {
+            List<Long> sleeps = new ArrayList<>();
+            AtomicInteger calls = new AtomicInteger();
+            Integer result = build(specialized, sleeps).call(calls::incrementAndGet, value -> value > 5);
+            Assert.assertEquals(Integer.valueOf(3), result);
+            Assert.assertEquals(2, sleeps.size());
+
+            // An exception thrown by the predicate fails the attempt.
+            calls.set(0);
+            result = build(specialized, sleeps).call(calls::incrementAndGet, value -> {
+                if (value == 1) {
+                    throw new IllegalStateException("failed");
+                }
+                return true;
+            });
+            Assert.assertEquals(Integer.valueOf(2), result);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.FailureLogging;
+import com.github.bournecui.easyretry.TimeoutException;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+public class FailureLoggingTest {
+
+    private static final IllegalStateException SHARED = new IllegalStateException("shared");
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(EasyRetry.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @Before
+    public void setUp() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @After
+    public void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    private List<ILoggingEvent> failureEvents() {
+        return appender.list.stream()
+                .filter(event -> event.getLevel().isGreaterOrEqual(Level.WARN))
+                .filter(event -> event.getFormattedMessage().startsWith("Exception occurs"))
+                .collect(Collectors.toList());
+    }
+
+    private static RuntimeException failAlways(EasyRetry easyRetry) {
+        final int[] attempt = {0};
+        try {
+            easyRetry.run(() -> {
+                throw new IllegalStateException(++attempt[0] + " is not expected!");
+            });
+        } catch (RuntimeException e) {
+            return e;
+        }
+        throw new AssertionError("not failed");
+    }
+
+    @Test
+    public void testFull() {
+        RuntimeException e = failAlways(newBuilder().maxAttempts(3).build());
+
+        List<ILoggingEvent> events = failureEvents();
+        Assert.assertEquals(3, events.size());
+        Assert.assertNotNull(events.get(0).getThrowableProxy());
+        Assert.assertEquals(Level.ERROR, events.get(2).getLevel());
+        Assert.assertEquals(0, e.getSuppressed().length);
+    }
+
+    @Test
+    public void testSummary() {
+        RuntimeException e = failAlways(newBuilder().maxAttempts(3).failureLogging(FailureLogging.SUMMARY).build());
+
+        List<ILoggingEvent> events = failureEvents();
+        Assert.assertEquals(3, events.size());
+        for (ILoggingEvent event : events) {
+            Assert.assertNull(event.getThrowableProxy());
+        }
+        Assert.assertTrue(events.get(0).getFormattedMessage().endsWith("1 is not expected!"));
+        Assert.assertEquals("3 is not expected!", e.getMessage());
+        Assert.assertEquals(2, e.getSuppressed().length);
+        Assert.assertEquals("1 is not expected!", e.getSuppressed()[0].getMessage());
+    }
+
+    @Test
+    public void testOff() {
+        RuntimeException e = failAlways(newBuilder().maxAttempts(3).failureLogging(FailureLogging.OFF).build());
+
+        Assert.assertTrue(failureEvents().isEmpty());
+        Assert.assertEquals(2, e.getSuppressed().length);
+    }
+
+    @Test
+    public void testRateLimited() throws InterruptedException {
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(2)
+                .failureLogging(FailureLogging.RATE_LIMITED)
+                .failureLogRate(2)
+                .build();
+
+        for (int i = 0; i < 20; i++) {
+            failAlways(easyRetry);
+        }
+        // 40 failures, the window may turn once meanwhile.
+        int logged = failureEvents().size();
+        Assert.assertTrue(logged >= 2 && logged <= 4);
+
+        Thread.sleep(1100);
+        appender.list.clear();
+        failAlways(easyRetry);
+        Assert.assertTrue(failureEvents().get(0).getFormattedMessage().contains("failures were not logged before"));
+    }
+
+    @Test
+    public void testRateLimitedOnClock() {
+        final long[] now = {0L};
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(2)
+                .failureLogging(FailureLogging.RATE_LIMITED)
+                .failureLogRate(2)
+                .clock(() -> now[0])
+                .build();
+
+        for (int i = 0; i < 20; i++) {
+            failAlways(easyRetry);
+        }
+        // The window only turns when the clock does.
+        Assert.assertEquals(2, failureEvents().size());
+
+        now[0] += TimeUnit.SECONDS.toNanos(1);
+        appender.list.clear();
+        failAlways(easyRetry);
+        Assert.assertEquals(2, failureEvents().size());
+        Assert.assertTrue(failureEvents().get(0).getFormattedMessage().contains("38 failures were not logged before"));
+    }
+
+    @Test
+    public void testTimeoutKeepsFailures() {
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(5)
+                .maxWaitTime(100L)
+                .backoff(40)
+                .failureLogging(FailureLogging.OFF)
+                .build();
+
+        RuntimeException e = failAlways(easyRetry);
+        Assert.assertTrue(e instanceof TimeoutException);
+        Assert.assertTrue(e.getSuppressed().length >= 2);
+    }
+
+    @Test
+    public void testSameExceptionNotPiledUp() {
+        EasyRetry easyRetry = newBuilder().maxAttempts(3).failureLogging(FailureLogging.OFF).build();
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                easyRetry.run(() -> {
+                    throw SHARED;
+                });
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                Assert.assertSame(SHARED, e);
+            }
+        }
+        Assert.assertEquals(0, SHARED.getSuppressed().length);
+    }
+}
@@ -0,0 +1,158 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.bournecui.easyretry.EasyCallable;
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.TimeoutException;
+import com.github.bournecui.easyretry.circuit.CircuitBreakerBuilder;
+import com.github.bournecui.easyretry.fallback.FallbackCache;
+import com.github.bournecui.easyretry.fallback.FallbackCacheBuilder;
+
+public class FallbackCacheTest {
+
+    private static final EasyCallable<String> FAILING = () -> {
+        throw new IllegalStateException("not expected!");
+    };
+
+    @Test
+    public void testFallbackAfterExhausted() {
+        FallbackCache cache = FallbackCacheBuilder.newBuilder().build();
+        EasyRetry easyRetry = newBuilder().maxAttempts(2).fallbackCache(cache).build();
+
+        Assert.assertEquals("v1", easyRetry.callWithFallback("k", () -> "v1"));
+        Assert.assertEquals("v1", easyRetry.callWithFallback("k", FAILING));
+        try {
+            easyRetry.callWithFallback("other", FAILING);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("not expected!", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRejectedResultNotSaved() {
+        FallbackCache cache = FallbackCacheBuilder.newBuilder().build();
+        EasyRetry easyRetry = newBuilder().maxAttempts(2).fallbackCache(cache).build();
+
+        easyRetry.callWithFallback("k", () -> "good", value -> value.equals("good"));
+        Assert.assertEquals("good", easyRetry.callWithFallback("k", () -> "bad", value -> value.equals("good")));
+        Assert.assertEquals("good", cache.get("k"));
+    }
+
+    @Test
+    public void testExceptionNotRetriedThrown() {
+        FallbackCache cache = FallbackCacheBuilder.newBuilder().build();
+        EasyRetry easyRetry = newBuilder()
+                .excludeExceptions(IllegalArgumentException.class)
+                .fallbackCache(cache)
+                .build();
+
+        easyRetry.callWithFallback("k", () -> "v1");
+        try {
+            easyRetry.callWithFallback("k", () -> {
+                throw new IllegalArgumentException("bad request");
+            });
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("bad request", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testFallbackOnTimeoutAndOpenCircuit() {
+        FallbackCache cache = FallbackCacheBuilder.newBuilder().build();
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(5)
+                .maxWaitTime(50L)
+                .backoff(30)
+                .circuitBreaker(CircuitBreakerBuilder.newBuilder().windowSize(4).minimumCalls(4).build())
+                .fallbackCache(cache)
+                .build();
+
+        easyRetry.callWithFallback("k", () -> "v1");
+        try {
+            easyRetry.call(FAILING);
+            Assert.fail();
+        } catch (TimeoutException e) {
+            // Expected
+        }
+        Assert.assertEquals("v1", easyRetry.callWithFallback("k", FAILING));
+        // The circuit is open by now.
+        AtomicInteger calls = new AtomicInteger();
+        Assert.assertEquals("v1", easyRetry.callWithFallback("k", () -> "v" + calls.incrementAndGet()));
+        Assert.assertEquals(0, calls.get());
+    }
+
+    @Test
+    public void testMaxStaleness() throws InterruptedException {
+        FallbackCache cache = FallbackCacheBuilder.newBuilder().maxStaleness(50L).build();
+        EasyRetry easyRetry = newBuilder().maxAttempts(1).fallbackCache(cache).build();
+
+        easyRetry.callWithFallback("k", () -> "v1");
+        Assert.assertEquals("v1", easyRetry.callWithFallback("k", FAILING));
+        Thread.sleep(80);
+        try {
+            easyRetry.callWithFallback("k", FAILING);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        FallbackCache cache = FallbackCacheBuilder.newBuilder().maxSize(2).concurrencyLevel(1).build();
+
+        cache.put("a", 1);
+        cache.put("b", 2);
+        Assert.assertEquals(1, (int) cache.<Integer>get("a"));
+        cache.put("c", 3);
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals(1, (int) cache.<Integer>get("a"));
+        Assert.assertEquals(3, (int) cache.<Integer>get("c"));
+    }
+
+    @Test
+    public void testRefreshInBackground() throws InterruptedException {
+        FallbackCache cache = FallbackCacheBuilder.newBuilder().refreshInBackground(true).build();
+        EasyRetry easyRetry = newBuilder().fallbackCache(cache).build();
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        EasyCallable<String> slow = () -> {
+            calls.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "v2";
+        };
+
+        // Nothing saved, it is called in place.
+        Assert.assertEquals("v1", easyRetry.callWithFallback("k", () -> "v1"));
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals("v1", easyRetry.callWithFallback("k", slow));
+        }
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        release.countDown();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"v2".equals(cache.get("k")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Assert.assertEquals("v2", cache.get("k"));
+        // One refresh in flight for the key at a time.
+        Assert.assertEquals(1, calls.get());
+    }
+}
@@ -0,0 +1,151 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.bournecui.easyretry.timer.HashedWheelTimer;
+import com.github.bournecui.easyretry.timer.Timeout;
+
+public class HashedWheelTimerTest {
+
+    private static HashedWheelTimer newTimer(long tickDuration, TimeUnit unit) {
+        return new HashedWheelTimer(tickDuration, unit, runnable -> {
+            Thread thread = new Thread(runnable, "test-wheel-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Test
+    public void testFireAfterDelay() throws InterruptedException {
+        try (HashedWheelTimer timer = new HashedWheelTimer()) {
+            final List<Integer> fired = new CopyOnWriteArrayList<>();
+            final CountDownLatch latch = new CountDownLatch(3);
+            long start = System.nanoTime();
+            for (int delay : new int[] {60, 20, 40}) {
+                timer.schedule(() -> {
+                    fired.add(delay);
+                    Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(delay));
+                    latch.countDown();
+                }, delay, TimeUnit.MILLISECONDS);
+            }
+
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(3, fired.size());
+            Assert.assertEquals(20, fired.get(0).intValue());
+            Assert.assertEquals(40, fired.get(1).intValue());
+            Assert.assertEquals(60, fired.get(2).intValue());
+            Assert.assertEquals(3, timer.getFiredTimeouts());
+        }
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        try (HashedWheelTimer timer = new HashedWheelTimer()) {
+            final AtomicInteger fired = new AtomicInteger();
+            Timeout timeout = timer.schedule(fired::incrementAndGet, 20, TimeUnit.MILLISECONDS);
+            Assert.assertTrue(timeout.cancel());
+            Assert.assertFalse(timeout.cancel());
+            Assert.assertTrue(timeout.isCancelled());
+            Assert.assertEquals(0, timer.getPendingTimeouts());
+
+            Thread.sleep(100);
+            Assert.assertEquals(0, fired.get());
+            Assert.assertFalse(timeout.isExpired());
+        }
+    }
+
+    @Test
+    public void testCascade() throws InterruptedException {
+        // 70000 ticks need the third wheel.
+        try (HashedWheelTimer timer = newTimer(10, TimeUnit.MICROSECONDS)) {
+            final CountDownLatch latch = new CountDownLatch(3);
+            long start = System.nanoTime();
+            final long[] delays = {300, 70000, 5000};
+            for (long delay : delays) {
+                timer.schedule(() -> {
+                    Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MICROSECONDS.toNanos(delay * 10));
+                    latch.countDown();
+                }, delay * 10, TimeUnit.MICROSECONDS);
+            }
+
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(0, timer.getPendingTimeouts());
+        }
+    }
+
+    @Test
+    public void testManyTimeouts() throws InterruptedException {
+        try (HashedWheelTimer timer = new HashedWheelTimer()) {
+            int count = 100000;
+            final AtomicInteger fired = new AtomicInteger();
+            int cancelled = 0;
+            for (int i = 0; i < count; i++) {
+                Timeout timeout = timer.schedule(fired::incrementAndGet, i % 100, TimeUnit.MILLISECONDS);
+                // A short timeout may fire before it is cancelled.
+                if (i % 2 == 1 && timeout.cancel()) {
+                    cancelled++;
+                }
+            }
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (fired.get() < count - cancelled && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            Assert.assertEquals(count - cancelled, fired.get());
+            Assert.assertEquals(count - cancelled, timer.getFiredTimeouts());
+            Assert.assertEquals(0, timer.getPendingTimeouts());
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testScheduleAfterClose() {
+        HashedWheelTimer timer = new HashedWheelTimer();
+        timer.close();
+        timer.schedule(() -> { }, 1, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testCallAsyncOnScheduler() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        final AtomicInteger attempt = new AtomicInteger();
+        try {
+            Integer result = newBuilder()
+                    .maxAttempts(3)
+                    .backoff(10)
+                    .scheduler(scheduler)
+                    .build()
+                    .callAsync(() -> {
+                        if (attempt.incrementAndGet() < 3) {
+                            throw new IllegalStateException("not expected!");
+                        }
+                        return attempt.get();
+                    })
+                    .get();
+            Assert.assertEquals(3, result.intValue());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testTimerAndScheduler() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try (HashedWheelTimer timer = new HashedWheelTimer()) {
+            newBuilder().timer(timer).scheduler(scheduler).build();
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
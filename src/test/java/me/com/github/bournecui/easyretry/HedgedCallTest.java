@@ -0,0 +1,140 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.TimeoutException;
+
+public class HedgedCallTest {
+
+    @Test
+    public void testSlowAttemptIsHedged() throws InterruptedException {
+        final AtomicInteger attempt = new AtomicInteger();
+        final CountDownLatch cancelled = new CountDownLatch(1);
+
+        long start = System.currentTimeMillis();
+        Integer result = newBuilder()
+                .hedgeDelay(20)
+                .build()
+                .callHedged(() -> {
+                    int current = attempt.incrementAndGet();
+                    if (current == 1) {
+                        try {
+                            Thread.sleep(10000);
+                        } catch (InterruptedException e) {
+                            cancelled.countDown();
+                        }
+                    }
+                    return current;
+                });
+
+        Assert.assertEquals(2, result.intValue());
+        Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+        Assert.assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testHedgeDueFromLatestLaunch() throws InterruptedException {
+        final AtomicInteger attempt = new AtomicInteger();
+        final long[] launchedAt = new long[4];
+
+        Integer result = newBuilder()
+                .maxAttempts(3)
+                .hedgeDelay(200)
+                .maxHedges(2)
+                .build()
+                .callHedged(() -> {
+                    int current = attempt.incrementAndGet();
+                    launchedAt[current] = System.nanoTime();
+                    try {
+                        if (current == 1) {
+                            Thread.sleep(10000);
+                        } else if (current == 2) {
+                            Thread.sleep(180);
+                            throw new IllegalStateException("not expected!");
+                        }
+                    } catch (InterruptedException e) {
+                        // Cancelled.
+                    }
+                    return current;
+                });
+
+        // The failure of the second attempt does not put the third one off, it is due 200ms after the second.
+        Assert.assertEquals(3, result.intValue());
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(launchedAt[3] - launchedAt[2]) < 330);
+    }
+
+    @Test
+    public void testFailureIsReplaced() throws InterruptedException {
+        final AtomicInteger attempt = new AtomicInteger();
+
+        Integer result = newBuilder()
+                .maxAttempts(3)
+                .hedgeDelay(1000)
+                .build()
+                .callHedged(() -> {
+                    if (attempt.incrementAndGet() < 3) {
+                        throw new IllegalStateException("not expected!");
+                    }
+                    return attempt.get();
+                });
+
+        Assert.assertEquals(3, result.intValue());
+    }
+
+    @Test
+    public void testResultPredicate() throws InterruptedException {
+        final AtomicInteger attempt = new AtomicInteger();
+
+        Integer result = newBuilder()
+                .maxAttempts(2)
+                .hedgeDelay(1000)
+                .build()
+                .callHedged(attempt::incrementAndGet, result1 -> result1 == 5);
+
+        Assert.assertEquals(2, result.intValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExcludedException() throws InterruptedException {
+        newBuilder()
+                .maxAttempts(3)
+                .hedgeDelay(1000)
+                .excludeExceptions(IllegalArgumentException.class)
+                .build()
+                .callHedged(() -> {
+                    throw new IllegalArgumentException("not expected!");
+                });
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void testTimeout() throws InterruptedException {
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(2)
+                .maxHedges(1)
+                .hedgeDelay(10)
+                .maxWaitTime(100L)
+                .build();
+
+        easyRetry.callHedged(() -> {
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        });
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNotEnabled() throws InterruptedException {
+        newBuilder().build().callHedged(() -> 1);
+    }
+}
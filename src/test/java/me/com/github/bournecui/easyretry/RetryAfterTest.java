@@ -0,0 +1,155 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.TimeoutException;
+import com.github.bournecui.easyretry.backoff.RetryAfterExtractor;
+
+public class RetryAfterTest {
+
+    private static final class ThrottledException extends RuntimeException {
+        private final long retryAfter;
+
+        private ThrottledException(long retryAfter) {
+            super("throttled");
+            this.retryAfter = retryAfter;
+        }
+    }
+
+    /**
+     * A job which fails twice with the hint and records when every attempt starts.
+     */
+    private static Integer throttledTwice(List<Long> starts, long retryAfter) {
+        starts.add(System.currentTimeMillis());
+        if (starts.size() < 3) {
+            throw new IllegalStateException(new ThrottledException(retryAfter));
+        }
+        return starts.size();
+    }
+
+    private static long gap(List<Long> starts, int index) {
+        return starts.get(index) - starts.get(index - 1);
+    }
+
+    @Test
+    public void testExceptionHint() {
+        final List<Long> starts = new CopyOnWriteArrayList<>();
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(3)
+                .backoff(1000)
+                .retryAfter(RetryAfterExtractor.ofException(ThrottledException.class, e -> e.retryAfter))
+                .build();
+
+        Assert.assertEquals(3, easyRetry.call(() -> throttledTwice(starts, 50)).intValue());
+        Assert.assertTrue(gap(starts, 1) >= 50 && gap(starts, 1) < 1000);
+        Assert.assertTrue(gap(starts, 2) >= 50 && gap(starts, 2) < 1000);
+    }
+
+    @Test
+    public void testResultHint() {
+        final List<Long> starts = new CopyOnWriteArrayList<>();
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(3)
+                .retryAfter(RetryAfterExtractor.ofResult(Long.class, result -> result))
+                .build();
+
+        Long result = easyRetry.call(() -> {
+            starts.add(System.currentTimeMillis());
+            return starts.size() < 2 ? 50L : 0L;
+        }, value -> value == 0L);
+        Assert.assertEquals(0L, result.longValue());
+        Assert.assertTrue(gap(starts, 1) >= 50);
+    }
+
+    @Test
+    public void testHintClamped() {
+        final List<Long> starts = new CopyOnWriteArrayList<>();
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(3)
+                .retryAfter((failure, result) -> starts.size() == 1 ? 10000L : 0L)
+                .minRetryAfter(30)
+                .maxRetryAfter(60)
+                .build();
+
+        easyRetry.call(() -> throttledTwice(starts, 0));
+        Assert.assertTrue(gap(starts, 1) >= 60 && gap(starts, 1) < 1000);
+        Assert.assertTrue(gap(starts, 2) >= 30);
+    }
+
+    @Test
+    public void testHintPastMaxWaitTime() {
+        final List<Long> starts = new CopyOnWriteArrayList<>();
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(3)
+                .maxWaitTime(100L)
+                .retryAfter(RetryAfterExtractor.ofException(ThrottledException.class, e -> e.retryAfter))
+                .build();
+
+        long start = System.currentTimeMillis();
+        try {
+            easyRetry.call(() -> throttledTwice(starts, 10000));
+            Assert.fail();
+        } catch (TimeoutException e) {
+            // The hint ends after the max wait time, retry is given up at once.
+            Assert.assertTrue(System.currentTimeMillis() - start < 100);
+            Assert.assertEquals(1, starts.size());
+        }
+    }
+
+    @Test
+    public void testExtractorFailureFallsBack() {
+        final List<Long> starts = new CopyOnWriteArrayList<>();
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(3)
+                .backoff(10)
+                .retryAfter((failure, result) -> {
+                    throw new IllegalArgumentException("bad header");
+                })
+                .build();
+
+        Assert.assertEquals(3, easyRetry.call(() -> throttledTwice(starts, 10000)).intValue());
+    }
+
+    @Test
+    public void testHintNotFedToStrategy() {
+        final List<Long> starts = new CopyOnWriteArrayList<>();
+        final List<Long> previousDelays = new CopyOnWriteArrayList<>();
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(3)
+                .backoff((attempt, previousDelay) -> {
+                    previousDelays.add(previousDelay);
+                    return 1L;
+                })
+                .retryAfter(RetryAfterExtractor.ofException(ThrottledException.class, e -> e.retryAfter))
+                .build();
+
+        // The strategy gets back its own delay, not the hint waited instead.
+        Assert.assertEquals(3, easyRetry.call(() -> throttledTwice(starts, 50)).intValue());
+        Assert.assertEquals("[0, 1]", previousDelays.toString());
+    }
+
+    @Test
+    public void testAsyncHint() throws Exception {
+        final List<Long> starts = new CopyOnWriteArrayList<>();
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(3)
+                .backoff(1000)
+                .retryAfter(RetryAfterExtractor.ofException(ThrottledException.class, e -> e.retryAfter))
+                .build();
+
+        Assert.assertEquals(3, easyRetry.callAsync(() -> throttledTwice(starts, 50)).get().intValue());
+        Assert.assertTrue(gap(starts, 1) >= 50 && gap(starts, 1) < 1000);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBadBounds() {
+        newBuilder().minRetryAfter(100).maxRetryAfter(10).build();
+    }
+}
@@ -0,0 +1,75 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.budget.TokenBucketRetryBudget;
+
+public class RetryBudgetTest {
+
+    @Test
+    public void testTokenBucket() {
+        TokenBucketRetryBudget budget = new TokenBucketRetryBudget(0.5, 2);
+
+        Assert.assertTrue(budget.tryWithdraw());
+        Assert.assertTrue(budget.tryWithdraw());
+        Assert.assertFalse(budget.tryWithdraw());
+
+        budget.deposit();
+        Assert.assertFalse(budget.tryWithdraw());
+        budget.deposit();
+        Assert.assertTrue(budget.tryWithdraw());
+
+        for (int i = 0; i < 100; i++) {
+            budget.deposit();
+        }
+        Assert.assertEquals(2, budget.getAvailableTokens());
+
+        Assert.assertEquals(102, budget.getDeposits());
+        Assert.assertEquals(3, budget.getWithdrawals());
+        Assert.assertEquals(2, budget.getRejections());
+    }
+
+    @Test
+    public void testRetryBudgetCapsRetries() {
+        final int[] attempt = {0};
+        TokenBucketRetryBudget budget = new TokenBucketRetryBudget(0.1, 2);
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(3)
+                .retryBudget(budget)
+                .build();
+
+        for (int i = 0; i < 10; i++) {
+            try {
+                easyRetry.call(() -> {
+                    ++attempt[0];
+                    throw new IllegalStateException("not expected!");
+                });
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        }
+
+        // 10 first attempts and 2 saved tokens, the later 9 first attempts earned less than one token.
+        Assert.assertEquals(12, attempt[0]);
+        Assert.assertEquals(2, budget.getWithdrawals());
+        Assert.assertTrue(budget.getRejections() > 0);
+    }
+
+    @Test
+    public void testRetryBudgetReturnsResult() {
+        final int[] attempt = {0};
+
+        Integer result = newBuilder()
+                .maxAttempts(5)
+                .retryBudget(new TokenBucketRetryBudget(0, 1))
+                .build()
+                .call(() -> ++attempt[0], result1 -> result1 == 5);
+
+        Assert.assertSame(result, 2);
+    }
+}
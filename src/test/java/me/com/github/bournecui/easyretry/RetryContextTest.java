@@ -0,0 +1,115 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.RetryContext;
+import com.github.bournecui.easyretry.TimeoutException;
+
+public class RetryContextTest {
+
+    @Test
+    public void testContext() {
+        final List<RetryContext> contexts = new CopyOnWriteArrayList<>();
+        EasyRetry easyRetry = newBuilder().maxAttempts(3).build();
+
+        Integer result = easyRetry.call(context -> {
+            contexts.add(context);
+            if (context.getAttempt() < 3) {
+                throw new IllegalStateException(context.getAttempt() + " is not expected!");
+            }
+            return context.getAttempt();
+        });
+
+        Assert.assertEquals(3, result.intValue());
+        Assert.assertEquals(3, contexts.size());
+        Assert.assertNull(contexts.get(0).getLastFailure());
+        Assert.assertEquals("1 is not expected!", contexts.get(1).getLastFailure().getMessage());
+        Assert.assertEquals("2 is not expected!", contexts.get(2).getLastFailure().getMessage());
+        Assert.assertEquals(3, contexts.get(2).getMaxAttempts());
+        Assert.assertTrue(contexts.get(2).isLastAttempt());
+        Assert.assertEquals(Long.MAX_VALUE, contexts.get(0).getRemainingNanos());
+    }
+
+    @Test
+    public void testRemainingTime() {
+        final List<Long> remaining = new CopyOnWriteArrayList<>();
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(3)
+                .maxWaitTime(1000L)
+                .backoff(50)
+                .build();
+
+        easyRetry.call(context -> {
+            remaining.add(context.getRemainingNanos());
+            if (context.getAttempt() < 2) {
+                throw new IllegalStateException("not expected!");
+            }
+            return 1;
+        }, value -> true);
+
+        Assert.assertTrue(remaining.get(0) <= TimeUnit.SECONDS.toNanos(1));
+        Assert.assertTrue(remaining.get(0) - remaining.get(1) >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void testRemainingTimeOfAttemptTimeout() {
+        Long remaining = newBuilder()
+                .maxWaitTime(10000L)
+                .attemptTimeout(100)
+                .build()
+                .call(context -> context.getRemainingMillis());
+
+        Assert.assertTrue(remaining <= 100);
+    }
+
+    @Test
+    public void testAttemptAfterMaxWaitTimeNotStarted() {
+        final List<Integer> attempts = new CopyOnWriteArrayList<>();
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(5)
+                .maxWaitTime(100L)
+                .backoff(60)
+                .build();
+
+        long start = System.currentTimeMillis();
+        try {
+            easyRetry.call(context -> {
+                attempts.add(context.getAttempt());
+                throw new IllegalStateException("not expected!");
+            });
+            Assert.fail();
+        } catch (TimeoutException e) {
+            // The third attempt would start after 120ms, it is given up right after the second one.
+            Assert.assertEquals(2, attempts.size());
+            Assert.assertTrue(System.currentTimeMillis() - start < 120);
+        }
+    }
+
+    @Test
+    public void testCallAsync() throws Exception {
+        final List<RetryContext> contexts = new CopyOnWriteArrayList<>();
+        Integer result = newBuilder()
+                .maxAttempts(3)
+                .backoff(10)
+                .build()
+                .callAsync(context -> {
+                    contexts.add(context);
+                    if (context.getAttempt() < 2) {
+                        throw new IllegalStateException("not expected!");
+                    }
+                    return context.getAttempt();
+                })
+                .get();
+
+        Assert.assertEquals(2, result.intValue());
+        Assert.assertNotNull(contexts.get(1).getLastFailure());
+    }
+}
@@ -0,0 +1,172 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.FailureLogging;
+import com.github.bournecui.easyretry.TimeoutException;
+import com.github.bournecui.easyretry.bulkhead.Bulkhead;
+import com.github.bournecui.easyretry.listener.LatencyHistogram;
+import com.github.bournecui.easyretry.listener.MetricsRetryListener;
+import com.github.bournecui.easyretry.listener.RetryListener;
+
+public class RetryListenerTest {
+
+    @Test
+    public void testEvents() {
+        final List<String> events = new ArrayList<>();
+        final int[] attempt = {0};
+
+        newBuilder()
+                .maxAttempts(4)
+                .listener(new RetryListener() {
+                    @Override
+                    public void onAttemptStart(int attempt) {
+                        events.add("start" + attempt);
+                    }
+
+                    @Override
+                    public void onAttemptFailure(int attempt, Throwable throwable, long elapsedNanos) {
+                        events.add("failure" + attempt);
+                    }
+
+                    @Override
+                    public void onResultRejected(int attempt, Object result, long elapsedNanos) {
+                        events.add("rejected" + attempt);
+                    }
+
+                    @Override
+                    public void onSuccess(int attempt, Object result, long elapsedNanos) {
+                        events.add("success" + attempt);
+                    }
+                })
+                .build()
+                .call(() -> {
+                    if (++attempt[0] == 1) {
+                        throw new IllegalStateException("not expected!");
+                    }
+                    return attempt[0];
+                }, result -> result == 3);
+
+        Assert.assertEquals("[start1, failure1, start2, rejected2, start3, success3]", events.toString());
+    }
+
+    /**
+     * A listener which throws neither fails the attempt nor keeps the permit of the bulkhead.
+     */
+    @Test
+    public void testThrowingListener() throws Exception {
+        final List<String> events = new ArrayList<>();
+        final int[] attempt = {0};
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(3)
+                .bulkhead(new Bulkhead(1))
+                .failureLogging(FailureLogging.OFF)
+                .listener(new RetryListener() {
+                    @Override
+                    public void onAttemptStart(int attempt) {
+                        throw new IllegalStateException("start");
+                    }
+
+                    @Override
+                    public void onSuccess(int attempt, Object result, long elapsedNanos) {
+                        throw new IllegalStateException("success");
+                    }
+                })
+                .listener(new RetryListener() {
+                    @Override
+                    public void onAttemptFailure(int attempt, Throwable throwable, long elapsedNanos) {
+                        events.add("failure" + attempt);
+                    }
+
+                    @Override
+                    public void onSuccess(int attempt, Object result, long elapsedNanos) {
+                        events.add("success" + attempt);
+                    }
+                })
+                .build();
+
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals(Integer.valueOf(1), easyRetry.call(() -> ++attempt[0]));
+            attempt[0] = 0;
+        }
+        Assert.assertEquals(Integer.valueOf(1), easyRetry.callAsync(() -> ++attempt[0]).get());
+        Assert.assertEquals("[success1, success1, success1]", events.toString());
+    }
+
+    @Test
+    public void testMetrics() {
+        MetricsRetryListener metrics = new MetricsRetryListener();
+        final List<Integer> exhausted = new ArrayList<>();
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(3)
+                .listener(metrics)
+                .listener(new RetryListener() {
+                    @Override
+                    public void onExhausted(int attempts, Throwable lastFailure) {
+                        exhausted.add(attempts);
+                    }
+                })
+                .build();
+
+        easyRetry.call(() -> 1);
+        try {
+            easyRetry.call(() -> {
+                throw new IllegalStateException("not expected!");
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        easyRetry.call(() -> 1, result -> result == 2);
+
+        Assert.assertEquals(3, metrics.getCalls());
+        Assert.assertEquals(7, metrics.getAttempts());
+        Assert.assertEquals(4, metrics.getRetries());
+        Assert.assertEquals(3, metrics.getFailures());
+        Assert.assertEquals(3, metrics.getRejections());
+        Assert.assertEquals(1, metrics.getSuccesses());
+        Assert.assertEquals(2, metrics.getExhausted());
+        Assert.assertEquals(7, metrics.getAttemptLatency().getCount());
+        Assert.assertEquals("[3, 3]", exhausted.toString());
+    }
+
+    @Test
+    public void testTimeout() {
+        MetricsRetryListener metrics = new MetricsRetryListener();
+        try {
+            newBuilder()
+                    .maxAttempts(5)
+                    .maxWaitTime(10L)
+                    .backoff(20)
+                    .listener(metrics)
+                    .build()
+                    .call(() -> 1, result -> false);
+            Assert.fail();
+        } catch (TimeoutException e) {
+            Assert.assertEquals(1, metrics.getTimeouts());
+            Assert.assertEquals(0, metrics.getExhausted());
+        }
+    }
+
+    @Test
+    public void testLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        Assert.assertEquals(1000, histogram.getCount());
+        long p50 = histogram.getPercentile(0.5);
+        long p99 = histogram.getPercentile(0.99);
+        Assert.assertTrue(p50 >= 500_000 && p50 <= 500_000 * 1.125);
+        Assert.assertTrue(p99 >= 990_000 && p99 <= 990_000 * 1.125);
+        Assert.assertEquals(0, new LatencyHistogram().getPercentile(0.99));
+    }
+}
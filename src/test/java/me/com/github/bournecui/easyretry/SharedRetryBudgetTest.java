@@ -0,0 +1,155 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.budget.SharedRetryBudget;
+
+public class SharedRetryBudgetTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Withdraws the tokens given from the budget file given, in a process of its own.
+     */
+    public static class Withdraw {
+
+        public static void main(String[] args) {
+            SharedRetryBudget budget = SharedRetryBudget.open(new File(args[0]), 0.1, 100);
+            for (int i = Integer.parseInt(args[1]); i > 0; i--) {
+                budget.tryWithdraw();
+            }
+        }
+    }
+
+    @Test
+    public void testSharedBetweenBudgets() throws IOException {
+        File file = folder.newFile("budget");
+        SharedRetryBudget first = SharedRetryBudget.open(file, 0.5, 2);
+        SharedRetryBudget second = SharedRetryBudget.open(file, 0.5, 2);
+
+        Assert.assertTrue(first.tryWithdraw());
+        Assert.assertTrue(second.tryWithdraw());
+        Assert.assertFalse(first.tryWithdraw());
+        Assert.assertFalse(second.tryWithdraw());
+
+        first.deposit();
+        second.deposit();
+        Assert.assertEquals(1, first.getAvailableTokens());
+        Assert.assertTrue(second.tryWithdraw());
+
+        for (int i = 0; i < 100; i++) {
+            first.deposit();
+        }
+        Assert.assertEquals(2, second.getAvailableTokens());
+        Assert.assertEquals(101, first.getDeposits());
+        Assert.assertEquals(2, second.getWithdrawals());
+        Assert.assertEquals(1, second.getRejections());
+    }
+
+    @Test
+    public void testConcurrentWithdrawals() throws Exception {
+        File file = folder.newFile("budget");
+        SharedRetryBudget[] budgets = {SharedRetryBudget.open(file, 0, 1000), SharedRetryBudget.open(file, 0, 1000)};
+        final AtomicInteger withdrawn = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final SharedRetryBudget budget = budgets[i % 2];
+            threads.add(new Thread(() -> {
+                while (budget.tryWithdraw()) {
+                    withdrawn.incrementAndGet();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(1000, withdrawn.get());
+        Assert.assertEquals(0, budgets[0].getAvailableTokens());
+    }
+
+    @Test
+    public void testSharedBetweenProcesses() throws Exception {
+        File file = folder.newFile("budget");
+        SharedRetryBudget budget = SharedRetryBudget.open(file, 0.1, 100);
+        Assert.assertTrue(budget.isLockFree());
+
+        Process process = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(),
+                "-cp", System.getProperty("java.class.path"), Withdraw.class.getName(), file.getPath(), "30")
+                .inheritIO()
+                .start();
+        Assert.assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+        Assert.assertEquals(0, process.exitValue());
+
+        Assert.assertEquals(70, budget.getAvailableTokens());
+    }
+
+    @Test
+    public void testBuilderByName() {
+        String name = "test-" + System.nanoTime();
+        EasyRetry easyRetry = newBuilder().sharedRetryBudget(name, 0.1, 5).build();
+        try {
+            Assert.assertTrue(easyRetry.getRetryBudget() instanceof SharedRetryBudget);
+            SharedRetryBudget other = SharedRetryBudget.open(name, 0.1, 5);
+            Assert.assertTrue(other.tryWithdraw());
+            Assert.assertEquals(4, ((SharedRetryBudget) easyRetry.getRetryBudget()).getAvailableTokens());
+        } finally {
+            ((SharedRetryBudget) easyRetry.getRetryBudget()).getFile().delete();
+        }
+    }
+
+    @Test
+    public void testMappedOnce() throws IOException {
+        Path fds = Paths.get("/proc/self/fd");
+        Assume.assumeTrue(Files.isDirectory(fds));
+        String name = "test-" + System.nanoTime();
+        EasyRetry easyRetry = newBuilder().sharedRetryBudget(name, 0.1, 5).build();
+        String path = ((SharedRetryBudget) easyRetry.getRetryBudget()).getFile().getCanonicalPath();
+        try {
+            long openFiles = count(fds);
+            for (int i = 0; i < 100; i++) {
+                newBuilder().sharedRetryBudget(name, 0.1, 5).build();
+            }
+
+            Assert.assertTrue(count(fds) <= openFiles);
+            Assert.assertEquals(1, Files.readAllLines(Paths.get("/proc/self/maps")).stream()
+                    .filter(line -> line.endsWith(path))
+                    .count());
+        } finally {
+            new File(path).delete();
+        }
+    }
+
+    private static long count(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidName() {
+        SharedRetryBudget.open("../budget", 0.1, 5);
+    }
+}
@@ -0,0 +1,202 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.bournecui.easyretry.EasyCallable;
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.TimeoutException;
+
+public class SingleFlightTest {
+
+    private static final int CALLERS = 20;
+
+    /**
+     * A job which fails once, then blocks until released and returns how many times it has been called.
+     */
+    private static EasyCallable<Integer> blockingJob(AtomicInteger calls, CountDownLatch release) {
+        return () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("not expected!");
+            }
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return calls.get();
+        };
+    }
+
+    private static void awaitInFlight(EasyRetry easyRetry, AtomicInteger calls) throws InterruptedException {
+        while (easyRetry.getSharedCallsInFlight() == 0 || calls.get() < 2) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testConcurrentCallersShareOneCall() throws Exception {
+        final EasyRetry easyRetry = newBuilder().maxAttempts(3).build();
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> easyRetry.callShared("key", blockingJob(calls, release))));
+            awaitInFlight(easyRetry, calls);
+            for (int i = 1; i < CALLERS; i++) {
+                futures.add(executor.submit(() -> easyRetry.callShared("key", blockingJob(calls, release))));
+            }
+            Thread.sleep(50);
+            release.countDown();
+
+            for (Future<Integer> future : futures) {
+                Assert.assertEquals(2, future.get(5, TimeUnit.SECONDS).intValue());
+            }
+            Assert.assertEquals(2, calls.get());
+            Assert.assertEquals(0, easyRetry.getSharedCallsInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExceptionShared() throws Exception {
+        final EasyRetry easyRetry = newBuilder().maxAttempts(2).build();
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final EasyCallable<Integer> job = () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalArgumentException("not expected!");
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> leader = executor.submit(() -> easyRetry.callShared("key", job));
+            Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Integer> follower = executor.submit(() -> easyRetry.callShared("key", job));
+            Thread.sleep(50);
+            release.countDown();
+
+            for (Future<Integer> future : new Future[] {leader, follower}) {
+                try {
+                    future.get(5, TimeUnit.SECONDS);
+                    Assert.fail();
+                } catch (ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+                }
+            }
+            Assert.assertEquals(2, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testKeysNotShared() {
+        EasyRetry easyRetry = newBuilder().build();
+        final AtomicInteger calls = new AtomicInteger();
+
+        Assert.assertEquals(1, easyRetry.callShared("a", calls::incrementAndGet).intValue());
+        Assert.assertEquals(2, easyRetry.callShared("b", calls::incrementAndGet).intValue());
+        // The call of a is done, a new one is run.
+        Assert.assertEquals(3, easyRetry.callShared("a", calls::incrementAndGet).intValue());
+        Assert.assertEquals(0, easyRetry.getSharedCallsInFlight());
+    }
+
+    @Test
+    public void testCallSharedAsync() throws Exception {
+        EasyRetry easyRetry = newBuilder().maxAttempts(3).build();
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Integer> leader = easyRetry.callSharedAsync("key", blockingJob(calls, release));
+        awaitInFlight(easyRetry, calls);
+        CompletableFuture<Integer> follower = easyRetry.callSharedAsync("key", blockingJob(calls, release));
+        CompletableFuture<Integer> cancelled = easyRetry.callSharedAsync("key", blockingJob(calls, release));
+        Assert.assertTrue(cancelled.cancel(true));
+        release.countDown();
+
+        Assert.assertEquals(2, leader.get(5, TimeUnit.SECONDS).intValue());
+        Assert.assertEquals(2, follower.get(5, TimeUnit.SECONDS).intValue());
+        Assert.assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testJoinerMaxWaitTime() throws Exception {
+        final EasyRetry easyRetry = newBuilder().maxAttempts(3).maxWaitTime(100L).build();
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> leader = executor.submit(() -> easyRetry.callShared("key", blockingJob(calls, release)));
+            awaitInFlight(easyRetry, calls);
+            long start = System.currentTimeMillis();
+            try {
+                easyRetry.callShared("key", blockingJob(calls, release));
+                Assert.fail();
+            } catch (TimeoutException e) {
+                Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+            }
+            release.countDown();
+            Assert.assertEquals(2, leader.get(5, TimeUnit.SECONDS).intValue());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testJoinerInterrupted() throws Exception {
+        final EasyRetry easyRetry = newBuilder().maxAttempts(3).build();
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final Object[] joined = {"not returned"};
+        final boolean[] interrupted = new boolean[1];
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> easyRetry.callShared("key", blockingJob(calls, release)));
+            awaitInFlight(easyRetry, calls);
+            Thread joiner = new Thread(() -> {
+                try {
+                    joined[0] = easyRetry.callShared("key", blockingJob(calls, release));
+                } catch (Throwable e) {
+                    joined[0] = e;
+                    interrupted[0] = Thread.currentThread().isInterrupted();
+                }
+            });
+            joiner.start();
+            while (joiner.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+            joiner.interrupt();
+            joiner.join(5000);
+
+            // Thrown, never taken for a null result.
+            Assert.assertFalse(joiner.isAlive());
+            Assert.assertTrue(joined[0] instanceof InterruptedException);
+            Assert.assertTrue(interrupted[0]);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.bournecui.easyretry.EasyRetry;
+import com.github.bournecui.easyretry.stream.StreamSource;
+
+public class StreamRetryTest {
+
+    private static final int SIZE = 1000;
+
+    /**
+     * The records 0 to {@code SIZE - 1}, reading the record at a position fails as many times as given.
+     */
+    private static class Records implements StreamSource<Integer, Integer> {
+
+        private final Map<Integer, Integer> failures = new HashMap<>();
+        private final AtomicInteger read = new AtomicInteger();
+        private final AtomicInteger opened = new AtomicInteger();
+
+        Records failAt(int position, int times) {
+            failures.put(position, times);
+            return this;
+        }
+
+        @Override
+        public Iterator<Integer> open(Integer position) {
+            opened.incrementAndGet();
+            final int from = position == null ? 0 : position + 1;
+            return new Iterator<Integer>() {
+                private int next = from;
+
+                @Override
+                public boolean hasNext() {
+                    return next < SIZE;
+                }
+
+                @Override
+                public Integer next() {
+                    if (next >= SIZE) {
+                        throw new NoSuchElementException();
+                    }
+                    Integer left = failures.get(next);
+                    if (left != null && left > 0) {
+                        failures.put(next, left - 1);
+                        throw new IllegalStateException("Failed to read " + next);
+                    }
+                    read.incrementAndGet();
+                    return next++;
+                }
+            };
+        }
+    }
+
+    @Test
+    public void testResumeFromLastPosition() throws InterruptedException {
+        EasyRetry easyRetry = newBuilder().maxAttempts(3).build();
+        Records records = new Records().failAt(400, 2).failAt(800, 1);
+        List<Integer> consumed = new ArrayList<>();
+
+        Integer last = easyRetry.runStream(records, record -> record, consumed::add);
+
+        Assert.assertEquals(SIZE - 1, last.intValue());
+        Assert.assertEquals(SIZE, consumed.size());
+        for (int i = 0; i < SIZE; i++) {
+            Assert.assertEquals(i, consumed.get(i).intValue());
+        }
+        // Nothing is read twice.
+        Assert.assertEquals(SIZE, records.read.get());
+        Assert.assertEquals(4, records.opened.get());
+    }
+
+    @Test
+    public void testAttemptsCountedByPosition() throws InterruptedException {
+        EasyRetry easyRetry = newBuilder().maxAttempts(2).build();
+        Records records = new Records();
+        for (int position = 100; position < SIZE; position += 100) {
+            records.failAt(position, 1);
+        }
+        AtomicInteger consumed = new AtomicInteger();
+
+        // 9 failures, but never 2 in a row at the same position.
+        easyRetry.runStream(records, record -> record, record -> consumed.incrementAndGet());
+        Assert.assertEquals(SIZE, consumed.get());
+
+        records = new Records().failAt(500, 2);
+        try {
+            easyRetry.runStream(records, record -> record, record -> {
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("Failed to read 500", e.getMessage());
+            Assert.assertEquals(2, records.opened.get());
+        }
+    }
+
+    @Test
+    public void testConsumerFailureConsumedAgain() throws InterruptedException {
+        EasyRetry easyRetry = newBuilder().maxAttempts(2).build();
+        final AtomicBoolean failed = new AtomicBoolean();
+        List<Integer> consumed = new ArrayList<>();
+
+        easyRetry.runStream(new Records(), record -> record, record -> {
+            if (record == 42 && failed.compareAndSet(false, true)) {
+                throw new IllegalStateException("Failed to write 42");
+            }
+            consumed.add(record);
+        });
+
+        Assert.assertEquals(SIZE, consumed.size());
+        Assert.assertEquals(42, consumed.get(42).intValue());
+    }
+
+    @Test
+    public void testExceptionNotRetried() throws InterruptedException {
+        EasyRetry easyRetry = newBuilder().maxAttempts(5).excludeExceptions(IllegalStateException.class).build();
+        Records records = new Records().failAt(10, 1);
+
+        try {
+            easyRetry.runStream(records, record -> record, record -> {
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(1, records.opened.get());
+        }
+    }
+
+    @Test
+    public void testStartAndStreamClosed() throws InterruptedException {
+        EasyRetry easyRetry = newBuilder().maxAttempts(2).build();
+        final AtomicInteger closed = new AtomicInteger();
+        final AtomicBoolean failed = new AtomicBoolean();
+        StreamSource<Integer, Integer> source = StreamSource.ofStream(position ->
+                IntStream.range(position + 1, 20).boxed()
+                        .peek(record -> {
+                            if (record == 15 && failed.compareAndSet(false, true)) {
+                                throw new IllegalStateException("Failed to read 15");
+                            }
+                        })
+                        .onClose(closed::incrementAndGet));
+        List<Integer> consumed = new ArrayList<>();
+
+        Integer last = easyRetry.runStream(9, source, record -> record, consumed::add);
+
+        Assert.assertEquals(19, last.intValue());
+        Assert.assertEquals(10, consumed.size());
+        Assert.assertEquals(10, consumed.get(0).intValue());
+        Assert.assertEquals(2, closed.get());
+    }
+}
@@ -0,0 +1,114 @@
+package me.com.github.bournecui.easyretry;
+
+import static com.github.bournecui.easyretry.EasyRetryBuilder.newBuilder;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.github.bournecui.easyretry.EasyRetry;
+
+public class VirtualThreadTest {
+
+    private static final Method IS_VIRTUAL = isVirtualMethod();
+
+    private static Method isVirtualMethod() {
+        try {
+            return Thread.class.getMethod("isVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static boolean isVirtual(Thread thread) {
+        try {
+            return (Boolean) IS_VIRTUAL.invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnsupportedBeforeJdk21() {
+        Assume.assumeTrue(IS_VIRTUAL == null);
+
+        newBuilder().virtualThreads(true).build();
+    }
+
+    @Test
+    public void testCallAsyncOnVirtualThread() throws Exception {
+        Assume.assumeTrue(IS_VIRTUAL != null);
+        final AtomicInteger attempt = new AtomicInteger();
+
+        Boolean virtual = newBuilder()
+                .maxAttempts(3)
+                .backoff(10)
+                .virtualThreads(true)
+                .build()
+                .callAsync(() -> {
+                    if (attempt.incrementAndGet() < 3) {
+                        throw new IllegalStateException(attempt + " is not expected!");
+                    }
+                    return isVirtual(Thread.currentThread());
+                })
+                .get();
+
+        Assert.assertTrue(virtual);
+        Assert.assertEquals(3, attempt.get());
+    }
+
+    @Test
+    public void testCallAsyncExceptionOnVirtualThread() throws Exception {
+        Assume.assumeTrue(IS_VIRTUAL != null);
+
+        CompletableFuture<Integer> future = newBuilder()
+                .maxAttempts(2)
+                .virtualThreads(true)
+                .build()
+                .callAsync(() -> {
+                    throw new IllegalStateException("not expected!");
+                });
+
+        try {
+            future.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testManyBlockedRetries() throws Exception {
+        Assume.assumeTrue(IS_VIRTUAL != null);
+        EasyRetry easyRetry = newBuilder()
+                .maxAttempts(2)
+                .backoff(200)
+                .virtualThreads(true)
+                .build();
+
+        // Far more sleeping jobs than a platform thread pool would hold.
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            final boolean[] failed = {false};
+            futures.add(easyRetry.callAsync(() -> {
+                if (!failed[0]) {
+                    failed[0] = true;
+                    throw new IllegalStateException("not expected!");
+                }
+                return 1;
+            }));
+        }
+        int sum = 0;
+        for (CompletableFuture<Integer> future : futures) {
+            sum += future.get();
+        }
+        Assert.assertEquals(10000, sum);
+    }
+}